@@ -0,0 +1,105 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.repository.MemberBulkRepository;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+import java.util.Arrays;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ *
+ * 임베디드 H2 메모리 DB 로 애플리케이션을 띄우고 members 명의 회원을 teams 개의 팀에 나눠서 저장한다.
+ * (InitMember 는 local 프로파일에서 100명만 저장하므로 bench 프로파일로 띄운다)
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    @Param({"10000"})
+    public int members;
+
+    @Param({"10"})
+    public int teams;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberRepository memberRepository;
+    MemberTestRepository memberTestRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start(teams, members);
+
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //애플리케이션을 띄우고 데이터를 저장한다
+    static ConfigurableApplicationContext start(int teams, int members) {
+        return start(teams, members, WebApplicationType.NONE);
+    }
+
+    //추가 인자는 기본 인자에 없는 속성만 넘긴다 (같은 속성을 두번 넘기면 값이 합쳐진다)
+    static ConfigurableApplicationContext start(int teams, int members, WebApplicationType webType, String... extraArguments) {
+        return start(teams, members, webType, arguments(), extraArguments);
+    }
+
+    //prod 프로파일 설정 그대로 띄운다 (DB 만 메모리 DB)
+    static ConfigurableApplicationContext startProd(int teams, int members, WebApplicationType webType, String... extraArguments) {
+        return start(teams, members, webType, prodArguments(), extraArguments);
+    }
+
+    private static ConfigurableApplicationContext start(int teams, int members, WebApplicationType webType,
+                                                        String[] base, String... extraArguments) {
+        String[] args = Arrays.copyOf(base, base.length + extraArguments.length);
+        System.arraycopy(extraArguments, 0, args, base.length, extraArguments.length);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(webType)
+                .run(args);
+        context.getBean(MemberBulkRepository.class).seed(teams, members);
+        return context;
+    }
+
+    //커맨드라인 인자는 application.yml 보다 우선한다
+    private static String[] arguments() {
+        return new String[]{
+                "--spring.profiles.active=bench",
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=1000",
+                "--app.bulk.chunk-size=50000",
+                "--decorator.datasource.enabled=false",//p6spy 로그 끄기
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn",
+                "--app.query.count-cache.ttl-seconds=0",//count 쿼리 자체를 측정
+                "--app.query.search-coalesce.enabled=false"//같은 조건을 반복하므로 결과 재사용 없이 측정
+        };
+    }
+
+    //prod 에 있는 속성(batch_size , p6spy 등)은 덮어쓰지 않는다. URL 은 prod 와 같은 QUERY_CACHE_SIZE 를 사용
+    private static String[] prodArguments() {
+        return new String[]{
+                "--spring.profiles.active=bench,prod",
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64",
+                "--spring.jpa.hibernate.ddl-auto=create"
+        };
+    }
+}
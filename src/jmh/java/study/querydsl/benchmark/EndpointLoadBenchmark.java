@@ -0,0 +1,115 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * prod 프로파일(커넥션 풀 , fetch/batch size , statement 캐시) 로 띄운 서버에 동시 요청을 보내서
+ * /v1 ~ /v3/members 의 처리량과 지연시간을 측정한다.
+ * 측정 후 /stats/pool , /actuator/metrics/hikaricp.connections.acquire 로 풀 포화 여부를 확인한다.
+ *
+ * 동시성 변경 : java -jar build/libs/querydsl-0.0.1-SNAPSHOT-jmh.jar EndpointLoadBenchmark -t 64
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(32)
+public class EndpointLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"10000"})
+        public int members;
+
+        @Param({"10"})
+        public int teams;
+
+        ConfigurableApplicationContext context;
+        String baseUrl;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkContext.startProd(teams, members, WebApplicationType.SERVLET,
+                    "--server.port=0");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        private final SplittableRandom random = new SplittableRandom(42);
+        private int teams;
+
+        @Setup
+        public void setUp(Server server) {
+            teams = server.teams;
+        }
+
+        String query() {
+            int ageGoe = random.nextInt(90);
+            return "teamName=team" + random.nextInt(teams) + "&ageGoe=" + ageGoe + "&ageLoe=" + (ageGoe + 10)
+                    + "&page=" + random.nextInt(10) + "&size=20";
+        }
+    }
+
+    @Benchmark
+    public int v1(Server server, Requests requests) {
+        return get(server.baseUrl + "/v1/members?" + requests.query());
+    }
+
+    @Benchmark
+    public int v2(Server server, Requests requests) {
+        return get(server.baseUrl + "/v2/members?" + requests.query());
+    }
+
+    @Benchmark
+    public int v3(Server server, Requests requests) {
+        return get(server.baseUrl + "/v3/members?" + requests.query());
+    }
+
+    //응답 본문까지 읽고 크기를 반환
+    private static int get(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            if (connection.getResponseCode() != 200) {
+                throw new IllegalStateException(url + " -> " + connection.getResponseCode());
+            }
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return out.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
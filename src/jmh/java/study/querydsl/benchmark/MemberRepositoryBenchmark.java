@@ -0,0 +1,92 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.QMember;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 저장소 조회 경로별 처리량/지연시간 측정. 메모리 할당률은 gc 프로파일러로 확인한다. (build.gradle jmh 설정)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    //스레드마다 다른 검색 조건을 만든다
+    @State(Scope.Thread)
+    public static class Conditions {
+        private SplittableRandom random;
+        private int teams;
+        private int maxPage;
+
+        @Setup
+        public void setUp(BenchmarkContext context) {
+            random = new SplittableRandom(42);
+            teams = context.teams;
+            maxPage = Math.max(1, Math.min(50, context.members / PAGE_SIZE));
+        }
+
+        MemberSearchCondition next() {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            int ageGoe = random.nextInt(90);
+            condition.setTeamName("team" + random.nextInt(teams));
+            condition.setAgeGoe(ageGoe);
+            condition.setAgeLoe(ageGoe + 10);
+            return condition;
+        }
+
+        PageRequest nextPage() {
+            return PageRequest.of(random.nextInt(maxPage), PAGE_SIZE);
+        }
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search(BenchmarkContext context, Conditions conditions) {
+        return context.memberJpaRepository.search(conditions.next());
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder(BenchmarkContext context, Conditions conditions) {
+        return context.memberJpaRepository.searchByBuilder(conditions.next());
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple(BenchmarkContext context, Conditions conditions) {
+        return context.memberRepository.searchPageSimple(conditions.next(), conditions.nextPage());
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchComplex(BenchmarkContext context, Conditions conditions) {
+        return context.memberRepository.searchComplex(conditions.next(), conditions.nextPage());
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination(BenchmarkContext context, Conditions conditions) {
+        return context.memberTestRepository.applyPagination(conditions.next(), conditions.nextPage());
+    }
+
+    //spring data QuerydslPredicateExecutor
+    @Benchmark
+    public Page<Member> querydslPredicateExecutor(BenchmarkContext context, Conditions conditions) {
+        MemberSearchCondition condition = conditions.next();
+        return context.memberRepository.findAll(
+                QMember.member.team.name.eq(condition.getTeamName())
+                        .and(QMember.member.age.between(condition.getAgeGoe(), condition.getAgeLoe())),
+                conditions.nextPage());
+    }
+}
@@ -0,0 +1,98 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.support.MemberSearchQueryTemplates;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.Entity.QMember.member;
+import static study.querydsl.Entity.QTeam.team;
+
+/**
+ * 회원 검색 : 호출마다 프로젝션과 JPQL 을 새로 만들기(rebuild) vs 템플릿 재사용(template)
+ *
+ * 같은 조건(팀명 + 나이 범위)으로 같은 결과(100건)를 조회한다.
+ * gc 프로파일러의 gc.alloc.rate.norm (B/op) 으로 조회 한번에 할당한 메모리를 비교한다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MemberSearchTemplateBenchmark {
+
+    @Param({"10000"})
+    public int members;
+
+    @Param({"rebuild", "template"})
+    public String path;
+
+    ConfigurableApplicationContext context;
+    JPAQueryFactory queryFactory;
+    MemberSearchQueryTemplates templates;
+    TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(10, members);
+        queryFactory = new JPAQueryFactory(context.getBean(EntityManager.class));
+        templates = context.getBean(MemberSearchQueryTemplates.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        //팀 i 의 회원 나이는 끝자리가 i 이므로 10살 범위면 한 나이만 일치한다
+        int teamNo = ThreadLocalRandom.current().nextInt(10);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team" + teamNo);
+        condition.setAgeGoe(teamNo * 10);
+        condition.setAgeLoe(teamNo * 10 + 9);
+
+        if ("rebuild".equals(path)) {
+            return readOnly.execute(status -> rebuild(condition));
+        }
+        return readOnly.execute(status -> templates.fetch(condition));
+    }
+
+    //템플릿 도입 전 방식 : 호출마다 QMemberTeamDto 와 쿼리를 만들고 JPQL 을 렌더링한다
+    private List<MemberTeamDto> rebuild(MemberSearchCondition condition) {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        team.name.eq(condition.getTeamName()),
+                        member.age.between(condition.getAgeGoe(), condition.getAgeLoe())
+                )
+                .fetch();
+    }
+}
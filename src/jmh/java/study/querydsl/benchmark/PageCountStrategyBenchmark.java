@@ -0,0 +1,29 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.PageCountStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+//fetchResults / 지연 count / count(*) over() / 한건 더 조회 비교
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PageCountStrategyBenchmark {
+
+    @Param({"FETCH_RESULTS", "LAZY_COUNT", "WINDOW", "LOOK_AHEAD"})
+    public PageCountStrategy strategy;
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPage(BenchmarkContext context, MemberRepositoryBenchmark.Conditions conditions) {
+        return context.memberRepository.searchPage(conditions.next(), conditions.nextPage(), strategy);
+    }
+}
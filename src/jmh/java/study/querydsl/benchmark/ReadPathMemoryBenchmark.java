@@ -0,0 +1,93 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 조회 전용 경로의 메모리 비교 (10만 건 전체 조회)
+ *
+ * 쓰기 트랜잭션 안에서 엔티티로 조회 / 읽기 전용 힌트 / DTO 프로젝션.
+ * gc 프로파일러의 gc.alloc.rate.norm (B/op) 으로 조회 한번에 할당한 메모리를 비교한다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ReadPathMemoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LargeData {
+
+        @Param({"100000"})
+        public int members;
+
+        ConfigurableApplicationContext context;
+        MemberJpaRepository memberJpaRepository;
+        MemberTestRepository memberTestRepository;
+        TransactionTemplate readWrite;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkContext.start(10, members);
+            memberJpaRepository = context.getBean(MemberJpaRepository.class);
+            memberTestRepository = context.getBean(MemberTestRepository.class);
+            readWrite = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    //기존 방식 : 쓰기 트랜잭션에 참여하면 엔티티마다 스냅샷이 만들어진다
+    @Benchmark
+    public List<Member> managedEntities(LargeData data) {
+        return data.readWrite.execute(status -> data.memberJpaRepository.searchMember(new MemberSearchCondition()));
+    }
+
+    @Benchmark
+    public List<Member> readOnlyEntities(LargeData data) {
+        return data.readWrite.execute(status -> data.memberJpaRepository.searchMemberReadOnly(new MemberSearchCondition()));
+    }
+
+    @Benchmark
+    public List<MemberDto> dtoProjection(LargeData data) {
+        return data.readWrite.execute(status -> data.memberJpaRepository.searchMemberDto(new MemberSearchCondition()));
+    }
+
+    @Benchmark
+    public Page<Member> readOnlyPage(LargeData data) {
+        return data.memberTestRepository.searchPageReadOnly(new MemberSearchCondition(), PageRequest.of(0, data.members));
+    }
+
+    @Benchmark
+    public Page<MemberDto> dtoPage(LargeData data) {
+        return data.memberTestRepository.searchPageDto(new MemberSearchCondition(), PageRequest.of(0, data.members));
+    }
+}
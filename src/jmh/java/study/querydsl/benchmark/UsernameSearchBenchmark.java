@@ -0,0 +1,72 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.MemberUsernameIndex;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원명 부분 / 앞부분 일치 검색 : like 와 메모리 인덱스(app.username-index.enabled) 비교
+ *
+ * 회원명은 member0 ~ member{members-1} 이다. (10만 건 기준)
+ *  - contains : 임의의 4자리 숫자 (수십 건)
+ *  - startsWith : member + 임의의 3자리 숫자 (111건)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class UsernameSearchBenchmark {
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(10, members, WebApplicationType.NONE,
+                "--app.username-index.enabled=" + indexed);
+        memberRepository = context.getBean(MemberRepository.class);
+        //데이터 저장 후 바로 적재 (변경 후 적재는 비동기)
+        context.getBean(MemberUsernameIndex.class).reload();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> contains() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains(String.valueOf(1000 + ThreadLocalRandom.current().nextInt(9000)));
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> startsWith() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameStartsWith("member" + (100 + ThreadLocalRandom.current().nextInt(900)));
+        return memberRepository.search(condition);
+    }
+}
@@ -5,15 +5,24 @@ import lombok.*;
 
 import javax.persistence.*;
 
+//검색 조건(MemberSearchCondition)에서 사용하는 컬럼 인덱스
+//팀 + 나이 범위 검색은 team_id 로 찾은 뒤 age 범위를 같은 인덱스에서 읽는다
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id" , "username" , "age"})
 public class Member {
 
+    //시퀀스를 50개씩 미리 할당받아(pooled) insert 마다 시퀀스를 조회하지 않는다 -> jdbc batch insert 가능
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;
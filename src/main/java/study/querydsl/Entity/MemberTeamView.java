@@ -0,0 +1,39 @@
+package study.querydsl.Entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//member + team 조인 결과를 미리 저장한 읽기 모델 (MemberTeamReadModel 이 JDBC 로 유지 , JPA 로는 조회만)
+//검색 조건 컬럼마다 인덱스 , 팀 이름은 team_name 컬럼에 바로 있어서 조인이 필요 없다
+@Entity
+@Immutable
+@Table(name = "member_team_view", indexes = {
+        @Index(name = "idx_member_team_view_username", columnList = "username"),
+        @Index(name = "idx_member_team_view_age", columnList = "age"),
+        @Index(name = "idx_member_team_view_team_name_age", columnList = "team_name, age"),
+        @Index(name = "idx_member_team_view_team_id", columnList = "team_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberTeamView {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    @Column(name = "team_name")
+    private String teamName;
+}
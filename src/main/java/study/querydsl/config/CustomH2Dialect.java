@@ -0,0 +1,15 @@
+package study.querydsl.config;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+public class CustomH2Dialect extends H2Dialect {
+
+    public CustomH2Dialect() {
+        super();
+        //JPQL 에는 윈도우 함수가 없어서 함수로 등록해서 사용한다.
+        //select count_over() ... -> 페이징(limit/offset) 적용 전의 전체 건수
+        registerFunction("count_over", new SQLFunctionTemplate(StandardBasicTypes.LONG, "count(*) over()"));
+    }
+}
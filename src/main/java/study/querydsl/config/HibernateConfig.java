@@ -0,0 +1,27 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.event.BulkModificationDetector;
+import study.querydsl.event.BulkQueryTranslatorFactory;
+import study.querydsl.event.TableModificationInspector;
+
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer tableModificationInspectorCustomizer(ApplicationEventPublisher publisher) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new TableModificationInspector(publisher));
+    }
+
+    //JPQL 벌크 연산 감지 (팀 통계 , 읽기 모델 재계산)
+    @Bean
+    public HibernatePropertiesCustomizer bulkQueryTranslatorCustomizer(BulkModificationDetector detector) {
+        return properties -> properties.put(AvailableSettings.QUERY_TRANSLATOR,
+                new BulkQueryTranslatorFactory(detector));
+    }
+}
@@ -0,0 +1,43 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class QueryExecutorConfig {
+
+    //count 쿼리를 컨텐츠 쿼리와 동시에 실행하기 위한 전용 풀
+    //큐가 가득 차면 예외를 던지고 호출한 쪽에서 기존처럼 순차 실행으로 처리한다.
+    //count 를 기다리는 호출 수는 app.query.count-executor.max-waiting 으로 제한한다 (Querydsl4RepositorySupport)
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor countQueryExecutor(
+            @Value("${app.query.count-executor.pool-size:4}") int poolSize,
+            @Value("${app.query.count-executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("count-query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    //비동기 검색 API(searchPageAsync) 전용 풀. 톰캣 스레드 대신 여기서 JPA 조회를 실행한다.
+    //풀과 큐가 모두 차면 즉시 거절(503)해서 느린 검색이 쌓여도 요청 스레드가 고갈되지 않도록 한다.
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor searchQueryExecutor(
+            @Value("${app.query.async.pool-size:8}") int poolSize,
+            @Value("${app.query.async.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,18 @@
+package study.querydsl.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class ReadModelConfig {
+
+    //읽기 모델(member_team_view) 재생성 , 메모리 검색 인덱스 재적재 전용 스케줄러
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler readModelScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("read-model-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+}
@@ -0,0 +1,106 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * app.datasource.replica.enabled=true 이면 spring.datasource 를 primary 로,
+ * app.datasource.replica.nodes 를 읽기 전용 복제본으로 사용하는 DataSource 를 등록한다.
+ * primary 풀은 spring.datasource.hikari.* , 복제본 풀은 노드별 hikari.* 설정을 사용한다.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    //라우팅 대상 풀. DataSource 빈이 아니므로(p6spy 가 한번만 감싸도록) 지표는 replicaPoolMetrics 가 연결한다
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler replicaHealthScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("replica-health-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ReplicaProperties replicaProperties,
+                                 ThreadPoolTaskScheduler replicaHealthScheduler, Environment environment) {
+        HikariDataSource primary = primary(properties, environment);
+        pools.add(primary);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        int index = 0;
+        for (ReplicaProperties.Node node : replicaProperties.getNodes()) {
+            String name = node.getName() != null ? node.getName() : "replica-" + index;
+            HikariDataSource replica = replica(name, node, properties);
+            pools.add(replica);
+            replicas.put(name, replica);
+            index++;
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas,
+                replicaProperties.getLagQuery(), replicaProperties.getMaxLagSeconds());
+        replicaHealthScheduler.scheduleWithFixedDelay(routing::checkHealth,
+                replicaProperties.getHealthCheckIntervalSeconds() * 1000);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    //풀마다 hikaricp.* 지표 (/stats/pool)
+    @Bean
+    public MeterBinder replicaPoolMetrics(DataSource dataSource) {
+        return registry -> pools.forEach(pool -> {
+            if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        });
+    }
+
+    //spring boot 의 기본 DataSource 와 같이 spring.datasource.hikari.* 를 바인딩한다
+    private static HikariDataSource primary(DataSourceProperties properties, Environment environment) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(properties.getName())) {
+            primary.setPoolName(properties.getName());
+        }
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        }
+        return primary;
+    }
+
+    //복제본 풀 설정은 app.datasource.replica.nodes[n].hikari.* (없으면 hikari 기본값)
+    private static HikariDataSource replica(String name, ReplicaProperties.Node node, DataSourceProperties properties) {
+        HikariDataSource replica = new HikariDataSource();
+        node.getHikari().copyStateTo(replica);
+        replica.setDriverClassName(properties.determineDriverClassName());
+        replica.setJdbcUrl(node.getUrl());
+        replica.setUsername(node.getUsername() != null ? node.getUsername() : properties.determineUsername());
+        replica.setPassword(node.getPassword() != null ? node.getPassword() : properties.determinePassword());
+        if (replica.getPoolName() == null) {
+            replica.setPoolName(name);
+        }
+        return replica;
+    }
+}
@@ -0,0 +1,43 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 복제본 설정 (app.datasource.replica.*)
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public class ReplicaProperties {
+
+    private boolean enabled;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    //헬스 체크 주기
+    private long healthCheckIntervalSeconds = 5;
+
+    //복제 지연(초)을 반환하는 쿼리. 없으면 연결 확인만 한다
+    //ex) MySQL : select timestampdiff(second, max(ts), now()) from heartbeat
+    private String lagQuery;
+
+    //지연이 이 값을 넘으면 해당 복제본은 사용하지 않는다
+    private long maxLagSeconds = 5;
+
+    @Getter
+    @Setter
+    public static class Node {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        //복제본 커넥션 풀 설정 (maximum-pool-size , connection-timeout 등)
+        private HikariConfig hikari = new HikariConfig();
+    }
+}
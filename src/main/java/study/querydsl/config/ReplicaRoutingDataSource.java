@@ -0,0 +1,117 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 복제본으로, 나머지는 primary 로 보낸다.
+ *
+ * 복제본은 정상인 것만 돌아가면서(round-robin) 사용하고, 모두 비정상이면 primary 를 사용한다.
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 설정되지 않으므로 반드시
+ * LazyConnectionDataSourceProxy 로 감싸서 실제 구문 실행 시점에 커넥션을 얻도록 한다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final String lagQuery;
+    private final long maxLagSeconds;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    String lagQuery, long maxLagSeconds) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            targets.put(name, dataSource);
+            this.replicas.add(new Replica(name, dataSource));
+        });
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    //연결 가능 여부와 복제 지연을 확인해서 사용할 복제본을 갱신한다
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy = isHealthy(replica);
+            if (healthy != replica.healthy) {
+                log.warn("replica {} is {}", replica.name, healthy ? "back in rotation" : "out of rotation");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    public Map<String, Boolean> replicaHealth() {
+        Map<String, Boolean> health = new LinkedHashMap<>();
+        replicas.forEach(replica -> health.put(replica.name, replica.healthy));
+        return Collections.unmodifiableMap(health);
+    }
+
+    void markHealthy(String name, boolean healthy) {
+        replicas.stream().filter(replica -> replica.name.equals(name)).forEach(replica -> replica.healthy = healthy);
+    }
+
+    private boolean isHealthy(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection()) {
+            if (!connection.isValid(1)) {
+                return false;
+            }
+            if (lagQuery == null) {
+                return true;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                return rs.next() && rs.getLong(1) <= maxLagSeconds;
+            }
+        } catch (SQLException e) {
+            log.debug("replica {} health check failed", replica.name, e);
+            return false;
+        }
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package study.querydsl.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class TeamStatsConfig {
+
+    //팀 통계 재계산(TeamStatsService.reconcileIfNeeded) 전용 스케줄러
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler teamStatsScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("team-stats-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+}
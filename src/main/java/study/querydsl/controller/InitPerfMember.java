@@ -0,0 +1,33 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberBulkRepository;
+
+//성능 테스트 환경용 대량 데이터 생성 (--spring.profiles.active=perf)
+@Slf4j
+@Profile("perf")
+@Component
+@RequiredArgsConstructor
+public class InitPerfMember implements ApplicationRunner {
+
+    private final MemberBulkRepository memberBulkRepository;
+
+    @Value("${app.init.teams:100}")
+    private int teams;
+
+    @Value("${app.init.members:1000000}")
+    private int members;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        memberBulkRepository.seed(teams, members);
+        log.info("seeded {} members in {} teams ({} ms)", members, teams, System.currentTimeMillis() - start);
+    }
+}
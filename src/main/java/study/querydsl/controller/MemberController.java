@@ -1,16 +1,35 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.InvalidCursorException;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.PageCountStrategy;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequiredArgsConstructor
@@ -18,6 +37,7 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMember1(MemberSearchCondition condition){
@@ -26,8 +46,14 @@ public class MemberController {
         return memberJpaRepository.search(condition);
     }
 
+    //count=false 이면 전체 건수 없이 다음 페이지 여부만 응답 (무한 스크롤)
+    //http://localhost:8080/v2/members?teamName=teamB&page=3&size=20&count=false
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
+    public Slice<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                               @RequestParam(defaultValue = "true") boolean count){
+        if (!count) {
+            return memberRepository.searchSlice(condition , pageable);
+        }
         return memberRepository.searchPageSimple(condition , pageable);
     }
 
@@ -35,4 +61,91 @@ public class MemberController {
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
         return memberRepository.searchComplex(condition , pageable);
     }
+
+    //검색을 전용 풀에서 실행하고 톰캣 스레드는 바로 반환한다
+    @GetMapping("/v2/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV2Async(MemberSearchCondition condition, Pageable pageable){
+        return memberRepository.searchPageAsync(condition , pageable , PageCountStrategy.LOOK_AHEAD);
+    }
+
+    @GetMapping("/v3/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable){
+        return memberRepository.searchPageAsync(condition , pageable , PageCountStrategy.LAZY_COUNT);
+    }
+
+    @GetMapping("/v4/members")
+    public MemberCursorResult searchMemberV4(MemberSearchCondition condition,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer size){
+        //http://localhost:8080/v4/members?teamName=teamB&size=20
+        //응답의 nextCursor 값을 cursor 파라미터로 넘기면 다음 페이지
+        return new MemberCursorResult(memberRepository.searchSlice(condition , MemberCursor.of(cursor , size)));
+    }
+
+    //전체 결과를 메모리에 올리지 않고 한 건씩 응답에 바로 쓴다
+    //http://localhost:8080/v1/members/export?teamName=teamB&format=csv
+    @GetMapping("/v1/members/export")
+    public void exportMembers(MemberSearchCondition condition,
+                              @RequestParam(defaultValue = "ndjson") String format,
+                              HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+
+        Writer writer = response.getWriter();
+        if (csv) {
+            writer.write("memberId,username,age,teamId,teamName\n");
+        }
+        try {
+            memberJpaRepository.forEachSearch(condition, dto -> writeRow(writer, dto, csv));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeRow(Writer writer, MemberTeamDto dto, boolean csv) {
+        try {
+            if (csv) {
+                writer.write(dto.getMemberId() + "," + csvValue(dto.getUsername()) + "," + dto.getAge() + ","
+                        + (dto.getTeamId() != null ? dto.getTeamId() : "") + "," + csvValue(dto.getTeamName()) + "\n");
+            } else {
+                writer.write(objectMapper.writeValueAsString(dto));
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    //잘못된 cursor 값은 400으로 응답 (다른 IllegalArgumentException 은 서버 오류로 남긴다)
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequest(InvalidCursorException e){
+        return e.getMessage();
+    }
+
+    //검색 풀이 가득 찬 경우
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String searchRejected(RejectedExecutionException e){
+        return "search is busy, retry later";
+    }
+
+    //query timeout 초과
+    @ExceptionHandler({QueryTimeoutException.class, javax.persistence.QueryTimeoutException.class, TransactionTimedOutException.class})
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public String searchTimeout(Exception e){
+        return "search timed out";
+    }
 }
@@ -0,0 +1,86 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.monitor.QueryMetrics;
+import study.querydsl.repository.support.QueryCountCache;
+import study.querydsl.repository.support.SearchCoalescer;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequiredArgsConstructor
+public class StatsController {
+
+    private static final Map<String, String> POOL_GAUGES = new LinkedHashMap<>();
+
+    static {
+        POOL_GAUGES.put("maximumPoolSize", "hikaricp.connections.max");
+        POOL_GAUGES.put("active", "hikaricp.connections.active");
+        POOL_GAUGES.put("idle", "hikaricp.connections.idle");
+        POOL_GAUGES.put("total", "hikaricp.connections");
+        POOL_GAUGES.put("threadsAwaitingConnection", "hikaricp.connections.pending");
+    }
+
+    private final QueryCountCache queryCountCache;
+    private final EntityManagerFactory entityManagerFactory;
+    private final QueryMetrics queryMetrics;
+    private final MeterRegistry meterRegistry;
+    private final SearchCoalescer searchCoalescer;
+
+    @GetMapping("/stats/count-cache")
+    public Map<String, Long> countCache(){
+        return queryCountCache.stats();
+    }
+
+    //검색별 직접 조회 / 합쳐진 요청 / 캐시 재사용 건수
+    @GetMapping("/stats/search-coalescer")
+    public Map<String, Map<String, Long>> searchCoalescer(){
+        return searchCoalescer.stats();
+    }
+
+    //hibernate.generate_statistics 가 켜져 있어야 값이 집계된다 (stats 프로파일)
+    @GetMapping("/stats/second-level-cache")
+    public Map<String, Object> secondLevelCache(){
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", statistics.isStatisticsEnabled());
+        stats.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        stats.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        stats.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        stats.put("queryCachePuts", statistics.getQueryCachePutCount());
+        stats.put("queryExecutions", statistics.getQueryExecutionCount());
+        stats.put("regions", Arrays.asList(statistics.getSecondLevelCacheRegionNames()));
+        return stats;
+    }
+
+    @GetMapping("/stats/queries")
+    public Map<String, Map<String, Object>> queries(){
+        return queryMetrics.snapshot();
+    }
+
+    //커넥션 풀별 현재 상태 (hikaricp.* 지표. 누적 지표는 /actuator/metrics/hikaricp.connections.acquire)
+    //DataSource 가 라우팅 / 지연 연결 프록시로 감싸져 있어도 풀마다 집계된다
+    @GetMapping("/stats/pool")
+    public Map<String, Map<String, Long>> pool(){
+        Map<String, Map<String, Long>> pools = new TreeMap<>();
+        POOL_GAUGES.forEach((key, meter) -> {
+            for (Gauge gauge : meterRegistry.find(meter).gauges()) {
+                pools.computeIfAbsent(gauge.getId().getTag("pool"), pool -> new LinkedHashMap<>())
+                        .put(key, (long) gauge.value());
+            }
+        });
+        return pools;
+    }
+}
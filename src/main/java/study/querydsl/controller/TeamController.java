@@ -0,0 +1,32 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.stats.TeamStatsService;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatsService teamStatsService;
+
+    //팀별 회원 수 , 평균 / 최소 / 최대 나이 (메모리에서 응답)
+    //http://localhost:8080/v1/teams/stats
+    @GetMapping("/v1/teams/stats")
+    public List<TeamStatsDto> teamStats(){
+        return teamStatsService.findAll();
+    }
+
+    @GetMapping("/v1/teams/{teamName}/stats")
+    public ResponseEntity<TeamStatsDto> teamStats(@PathVariable String teamName){
+        return teamStatsService.findByTeamName(teamName)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+//잘못된 cursor 값 또는 페이지 크기 (컨트롤러에서 400 으로 응답)
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
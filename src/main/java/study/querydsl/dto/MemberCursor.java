@@ -0,0 +1,67 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Getter
+public class MemberCursor {
+    //커서(seek) 페이징 : offset 대신 마지막으로 읽은 member_id 이후부터 조회한다.
+    //클라이언트에게는 member_id를 그대로 노출하지 않고 불투명한 문자열로 전달한다.
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 1000;
+
+    private static final String PREFIX = "m:";
+
+    private final Long lastMemberId;
+    private final int size;
+
+    public MemberCursor(Long lastMemberId, int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new InvalidCursorException("cursor size must be between 1 and " + MAX_SIZE + " : " + size);
+        }
+        this.lastMemberId = lastMemberId;
+        this.size = size;
+    }
+
+    public static MemberCursor first(int size) {
+        return new MemberCursor(null, size);
+    }
+
+    //token 이 없으면 첫 페이지
+    public static MemberCursor of(String token, Integer size) {
+        int pageSize = size != null ? size : DEFAULT_SIZE;
+        return new MemberCursor(decode(token), pageSize);
+    }
+
+    public static String encode(Long memberId) {
+        if (memberId == null) {
+            return null;
+        }
+        byte[] bytes = (PREFIX + memberId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public static Long decode(String token) {
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("invalid cursor : " + token, e);
+        }
+        if (!decoded.startsWith(PREFIX)) {
+            throw new InvalidCursorException("invalid cursor : " + token);
+        }
+        try {
+            return Long.valueOf(decoded.substring(PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("invalid cursor : " + token, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+@Getter
+public class MemberCursorResult {
+
+    private final List<MemberTeamDto> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor; //다음 페이지가 없으면 null
+
+    public MemberCursorResult(Slice<MemberTeamDto> slice) {
+        this.content = slice.getContent();
+        this.size = slice.getSize();
+        this.hasNext = slice.hasNext();
+        this.nextCursor = hasNext ? MemberCursor.encode(lastMemberId(content)) : null;
+    }
+
+    private static Long lastMemberId(List<MemberTeamDto> content) {
+        return content.isEmpty() ? null : content.get(content.size() - 1).getMemberId();
+    }
+}
@@ -11,4 +11,8 @@ public class MemberSearchCondition {
     private Integer ageGoe;
     private Integer ageLoe;
 
+    //회원명 부분 일치 / 앞부분 일치 (usernameContains=ber1 , usernameStartsWith=mem)
+    private String usernameContains;
+    private String usernameStartsWith;
+
 }
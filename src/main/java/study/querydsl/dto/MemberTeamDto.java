@@ -21,4 +21,9 @@ public class MemberTeamDto {
         this.teamId = teamId;
         this.teamName = teamName;
     }
+
+    //같은 조회 결과를 여러 호출에 나눠줄 때 사용 (SearchCoalescer)
+    public MemberTeamDto copy() {
+        return new MemberTeamDto(memberId, username, age, teamId, teamName);
+    }
 }
@@ -0,0 +1,28 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//팀별 회원 통계 (QuerydslBasicTest.group / aggregation 의 count , sum , avg , max , min)
+@Getter
+@ToString
+public class TeamStatsDto {
+
+    private final Long teamId;
+    private final String teamName;
+    private final long count;
+    private final long ageSum;
+    private final double ageAvg;
+    private final int ageMin;
+    private final int ageMax;
+
+    public TeamStatsDto(Long teamId, String teamName, long count, long ageSum, int ageMin, int ageMax) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.count = count;
+        this.ageSum = ageSum;
+        this.ageAvg = count > 0 ? (double) ageSum / count : 0;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+}
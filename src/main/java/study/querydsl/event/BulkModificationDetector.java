@@ -0,0 +1,102 @@
+package study.querydsl.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * JPQL 벌크 연산(update / delete 쿼리)이 실행된 테이블을 모아서 커밋 후 {@link BulkTableModifiedEvent} 를 발행한다.
+ * 하이버네이트가 벌크 연산을 실행할 때 {@link BulkQueryTranslatorFactory} 가 알려준다.
+ * 엔티티 리스너로 변경분을 유지하는 쪽(팀 통계 , 읽기 모델)은 이 이벤트를 받으면 다시 계산한다.
+ *
+ * 같은 트랜잭션에서 엔티티 저장과 벌크 연산을 함께 실행해도 벌크 연산으로 감지한다.
+ * 네이티브 update / delete 는 하이버네이트가 구문의 종류를 알려주지 않으므로 감지하지 않는다.
+ */
+@Component
+public class BulkModificationDetector {
+
+    private final ApplicationEventPublisher publisher;
+    //chunked 실행 중인 스레드 : 실행 중에 커밋된 테이블
+    private final ThreadLocal<Set<String>> chunkedRun = new ThreadLocal<>();
+
+    public BulkModificationDetector(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    //벌크 연산이 실행된 테이블 (querySpaces)
+    public void bulkExecuted(Collection<? extends Serializable> querySpaces) {
+        Set<String> tables = new HashSet<>();
+        for (Serializable space : querySpaces) {
+            tables.add(tableName(space.toString()));
+        }
+        if (tables.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(tables);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> created = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BulkModificationDetector.this);
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        publish(created);
+                    }
+                }
+            });
+            pending = created;
+        }
+        pending.addAll(tables);
+    }
+
+    /**
+     * 여러 트랜잭션으로 나눠서 실행하는 벌크 작업 (MemberBulkRepository.updateInChunks 등)
+     * 실행 중에 커밋된 변경은 pending 이벤트로 알리고 , 끝나면 변경된 테이블 전체로 한번 더 알린다.
+     * 받는 쪽은 pending 이벤트에서는 사용만 멈추고 마지막 이벤트에서 한번만 다시 계산한다.
+     */
+    public <T> T chunked(Supplier<T> run) {
+        if (chunkedRun.get() != null) {
+            return run.get();
+        }
+        Set<String> tables = new HashSet<>();
+        chunkedRun.set(tables);
+        try {
+            return run.get();
+        } finally {
+            chunkedRun.remove();
+            if (!tables.isEmpty()) {
+                publisher.publishEvent(new BulkTableModifiedEvent(Collections.unmodifiableSet(tables), false));
+            }
+        }
+    }
+
+    private void publish(Set<String> tables) {
+        Set<String> run = chunkedRun.get();
+        if (run != null) {
+            run.addAll(tables);
+        }
+        publisher.publishEvent(new BulkTableModifiedEvent(Collections.unmodifiableSet(tables), run != null));
+    }
+
+    //TableModificationInspector 와 같은 규칙 : schema.table 이면 테이블명만 , 소문자
+    private static String tableName(String name) {
+        int dot = name.lastIndexOf('.');
+        return name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.event;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.query.spi.EntityGraphQueryHint;
+import org.hibernate.engine.spi.QueryParameters;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.internal.ast.QueryTranslatorImpl;
+import org.hibernate.hql.spi.QueryTranslator;
+
+import java.util.Map;
+
+/**
+ * JPQL 벌크 연산(update / delete 쿼리)을 실행하면 대상 테이블을 {@link BulkModificationDetector} 에 알린다.
+ * (hibernate.query.factory_class) SQL 문자열로 추측하지 않고 하이버네이트가 실행하는 벌크 연산만 감지한다.
+ */
+public class BulkQueryTranslatorFactory extends ASTQueryTranslatorFactory {
+
+    private final BulkModificationDetector detector;
+
+    public BulkQueryTranslatorFactory(BulkModificationDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public QueryTranslator createQueryTranslator(String queryIdentifier, String queryString, Map filters,
+                                                 SessionFactoryImplementor factory,
+                                                 EntityGraphQueryHint entityGraphQueryHint) {
+        return new BulkQueryTranslator(queryIdentifier, queryString, filters, factory, entityGraphQueryHint, detector);
+    }
+
+    private static class BulkQueryTranslator extends QueryTranslatorImpl {
+
+        private final BulkModificationDetector detector;
+
+        @SuppressWarnings("rawtypes")
+        BulkQueryTranslator(String queryIdentifier, String query, Map enabledFilters, SessionFactoryImplementor factory,
+                            EntityGraphQueryHint entityGraphQueryHint, BulkModificationDetector detector) {
+            super(queryIdentifier, query, enabledFilters, factory, entityGraphQueryHint);
+            this.detector = detector;
+        }
+
+        @Override
+        public int executeUpdate(QueryParameters queryParameters, SharedSessionContractImplementor session)
+                throws HibernateException {
+            int rows = super.executeUpdate(queryParameters, session);
+            detector.bulkExecuted(getQuerySpaces());
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+@Getter
+@ToString
+public class BulkTableModifiedEvent {
+    //JPQL 벌크 연산으로 변경된 테이블 (소문자)
+    //영속성 컨텍스트를 거치지 않은 변경이라 변경된 행을 알 수 없다.
+
+    private final Set<String> tables;
+
+    //chunk 로 나눠서 실행 중인 벌크 작업의 중간 커밋 (작업이 끝나면 pending=false 로 한번 더 발행)
+    private final boolean pending;
+
+    public BulkTableModifiedEvent(Set<String> tables, boolean pending) {
+        this.tables = tables;
+        this.pending = pending;
+    }
+}
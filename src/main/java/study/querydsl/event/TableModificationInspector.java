@@ -0,0 +1,41 @@
+package study.querydsl.event;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 하이버네이트가 실행하는 모든 SQL 을 보고 데이터를 변경하는 구문이면 {@link TableModifiedEvent} 를 발행한다.
+ * 엔티티 리스너는 벌크 연산(JPQL update/delete)을 알 수 없기 때문에 SQL 단계에서 감지한다.
+ */
+public class TableModificationInspector implements StatementInspector {
+
+    //use-sql-comments 사용시 앞에 붙는 /* ... */ 주석은 건너뛴다
+    private static final Pattern MODIFYING = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)*(?:insert\\s+into|update|delete\\s+from|delete)\\s+([\\w.]+)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final ApplicationEventPublisher publisher;
+
+    public TableModificationInspector(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Matcher matcher = MODIFYING.matcher(sql);
+        if (matcher.find()) {
+            publisher.publishEvent(new TableModifiedEvent(tableName(matcher.group(1))));
+        }
+        return sql;
+    }
+
+    private static String tableName(String name) {
+        //schema.table 형태면 테이블명만 사용
+        int dot = name.lastIndexOf('.');
+        return name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
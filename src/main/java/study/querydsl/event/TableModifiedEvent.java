@@ -0,0 +1,17 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class TableModifiedEvent {
+    //insert , update , delete 구문이 실행될 테이블 (소문자)
+    //엔티티 저장뿐 아니라 벌크 연산(update/delete 쿼리)도 포함된다.
+
+    private final String table;
+
+    public TableModifiedEvent(String table) {
+        this.table = table;
+    }
+}
@@ -0,0 +1,143 @@
+package study.querydsl.monitor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 이름 붙인 쿼리별 실행 지표 (micrometer)
+ *
+ * querydsl.query            : 실행 시간 (p50/p95/p99). 실패한 쿼리는 outcome=ERROR , exception=예외 클래스명 으로 따로 집계
+ * querydsl.query.rows       : 반환 row 수
+ * querydsl.query.statements : 실행된 JDBC 구문 수 (p6spy, 호출 스레드 기준)
+ * querydsl.query.transform  : 조회 결과를 DTO 로 변환하는데 걸린 시간
+ *
+ * /actuator/metrics/querydsl.query?tag=query:member.search 또는 /stats/queries 로 확인한다.
+ * SQL 디버그 로그 없이도 쿼리별 비용을 볼 수 있게 하는 것이 목적이다.
+ */
+@Component
+public class QueryMetrics {
+
+    private static final String SUCCESS = "SUCCESS";
+    private static final String ERROR = "ERROR";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T record(String name, Supplier<T> query) {
+        Meters m = meters(name);
+        long statementsBefore = StatementStatistics.executedOnThread();
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = query.get();
+        } catch (RuntimeException | Error e) {
+            failure(name, e).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            m.statements.record(StatementStatistics.executedOnThread() - statementsBefore);
+            throw e;
+        }
+        m.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        m.statements.record(StatementStatistics.executedOnThread() - statementsBefore);
+        m.rows.record(rows(result));
+        return result;
+    }
+
+    public void recordTransform(String name, long nanos) {
+        meters(name).transform.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    //쿼리별 요약 (단위 ms)
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        meters.forEach((name, m) -> {
+            HistogramSnapshot latency = m.latency.takeSnapshot();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", latency.count());
+            stats.put("errors", registry.find("querydsl.query").tag("query", name).tag("outcome", ERROR).timers()
+                    .stream().mapToLong(Timer::count).sum());
+            stats.put("meanMs", latency.mean(TimeUnit.MILLISECONDS));
+            stats.put("maxMs", latency.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : latency.percentileValues()) {
+                stats.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+            }
+            stats.put("rowsTotal", (long) m.rows.totalAmount());
+            stats.put("statementsTotal", (long) m.statements.totalAmount());
+            stats.put("transformMs", m.transform.totalTime(TimeUnit.MILLISECONDS));
+            snapshot.put(name, stats);
+        });
+        return snapshot;
+    }
+
+    private Meters meters(String name) {
+        Meters m = meters.get(name);
+        return m != null ? m : meters.computeIfAbsent(name, this::register);
+    }
+
+    private Timer failure(String name, Throwable e) {
+        return Timer.builder("querydsl.query")
+                .tag("query", name)
+                .tag("outcome", ERROR)
+                .tag("exception", e.getClass().getSimpleName())
+                .register(registry);
+    }
+
+    private Meters register(String name) {
+        return new Meters(
+                Timer.builder("querydsl.query")
+                        .tag("query", name)
+                        .tag("outcome", SUCCESS)
+                        .tag("exception", "None")
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(registry),
+                DistributionSummary.builder("querydsl.query.rows")
+                        .tag("query", name)
+                        .register(registry),
+                DistributionSummary.builder("querydsl.query.statements")
+                        .tag("query", name)
+                        .register(registry),
+                Timer.builder("querydsl.query.transform")
+                        .tag("query", name)
+                        .register(registry));
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        return result == null ? 0 : 1;
+    }
+
+    private static class Meters {
+        private final Timer latency;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+        private final Timer transform;
+
+        Meters(Timer latency, DistributionSummary rows, DistributionSummary statements, Timer transform) {
+            this.latency = latency;
+            this.rows = rows;
+            this.statements = statements;
+            this.transform = transform;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 시작할 때 회원 검색 조건이 사용하는 컬럼마다 그 컬럼으로 시작하는 인덱스가 있는지 확인하고,
+ * 인덱스를 탈 수 없는 조건(전체 스캔)을 경고로 남긴다. (app.index-check.enabled=false 로 끌 수 있다)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.index-check.enabled", havingValue = "true", matchIfMissing = true)
+public class SearchIndexReport {
+
+    //MemberSearchCondition 필드 -> 검색에 사용하는 테이블.컬럼
+    private static final Map<String, String[]> SEARCH_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        SEARCH_COLUMNS.put("username", new String[]{"member", "username"});
+        SEARCH_COLUMNS.put("teamName", new String[]{"team", "name"});
+        SEARCH_COLUMNS.put("teamName(join)", new String[]{"member", "team_id"});
+        SEARCH_COLUMNS.put("ageGoe/ageLoe", new String[]{"member", "age"});
+    }
+
+    private final DataSource dataSource;
+
+    public SearchIndexReport(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        try {
+            List<String> uncovered = uncoveredPredicates();
+            if (uncovered.isEmpty()) {
+                log.info("all member search predicates are index-covered");
+            } else {
+                log.warn("member search predicates without index (full scan) : {}", uncovered);
+            }
+        } catch (SQLException e) {
+            log.warn("index check failed", e);
+        }
+    }
+
+    public List<String> uncoveredPredicates() throws SQLException {
+        List<String> uncovered = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, Set<String>> leadingColumns = new LinkedHashMap<>();
+            for (Map.Entry<String, String[]> entry : SEARCH_COLUMNS.entrySet()) {
+                String table = entry.getValue()[0];
+                String column = entry.getValue()[1];
+                Set<String> leading = leadingColumns.get(table);
+                if (leading == null) {
+                    leading = leadingIndexColumns(metaData, table);
+                    leadingColumns.put(table, leading);
+                }
+                if (!leading.contains(column)) {
+                    uncovered.add(entry.getKey() + " -> " + table + "." + column);
+                }
+            }
+        }
+        return uncovered;
+    }
+
+    //테이블의 각 인덱스 첫번째 컬럼
+    private static Set<String> leadingIndexColumns(DatabaseMetaData metaData, String table) throws SQLException {
+        String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        Set<String> columns = new HashSet<>();
+        try (ResultSet rs = metaData.getIndexInfo(null, null, name, false, true)) {
+            while (rs.next()) {
+                String column = rs.getString("COLUMN_NAME");
+                if (rs.getShort("ORDINAL_POSITION") == 1 && column != null) {
+                    columns.add(column.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return columns;
+    }
+}
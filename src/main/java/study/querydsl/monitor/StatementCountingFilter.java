@@ -0,0 +1,46 @@
+package study.querydsl.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 요청 단위로 JDBC 구문 수를 세고, 같은 select 가 threshold 번 이상 반복되면 N+1 의심 경고를 남긴다.
+ * 요청 스레드에서 실행된 구문만 집계한다. (count 병렬 실행 등 다른 스레드의 구문은 제외)
+ */
+@Slf4j
+@Component
+public class StatementCountingFilter extends OncePerRequestFilter {
+
+    private final int threshold;
+
+    public StatementCountingFilter(@Value("${app.monitor.n-plus-one.threshold:5}") int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementStatistics.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementStatistics statistics = StatementStatistics.stop();
+            Map<String, Integer> repeated = statistics.repeatedSelects(threshold);
+            if (!repeated.isEmpty()) {
+                log.warn("N+1 suspected : {} {} -> {} statements, repeated {}",
+                        request.getMethod(), request.getRequestURI(), statistics.getTotal(), repeated);
+            } else if (log.isDebugEnabled()) {
+                log.debug("{} {} -> {} statements", request.getMethod(), request.getRequestURI(), statistics.getTotal());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 로 실행되는 모든 JDBC 구문을 {@link StatementStatistics} 에 기록한다.
+ * (p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록)
+ */
+@Component
+public class StatementCountingListener extends JdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        StatementStatistics.record(statementInformation.getSql());
+    }
+}
@@ -0,0 +1,87 @@
+package study.querydsl.monitor;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 현재 스레드(요청)에서 실행된 JDBC 구문 집계
+ *
+ * {@link StatementCountingListener} 가 p6spy 를 통해 구문마다 기록하고,
+ * 같은 SQL 이 여러번 반복되면 N+1 로 의심한다. 파라미터는 '?' 그대로 집계하므로
+ * where team_id = ? 를 팀마다 실행하는 경우가 한 SQL 의 반복으로 잡힌다.
+ */
+public class StatementStatistics {
+
+    private static final ThreadLocal<StatementStatistics> CURRENT = new ThreadLocal<>();
+    //집계 여부와 상관없이 스레드별로 누적되는 구문 수 (QueryMetrics 에서 전후 차이로 사용)
+    private static final ThreadLocal<long[]> EXECUTED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private int total;
+
+    //현재 스레드에서 집계 시작. 이미 집계중이면 기존 것을 그대로 사용한다
+    public static StatementStatistics start() {
+        StatementStatistics statistics = CURRENT.get();
+        if (statistics == null) {
+            statistics = new StatementStatistics();
+            CURRENT.set(statistics);
+        }
+        return statistics;
+    }
+
+    public static StatementStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static StatementStatistics stop() {
+        StatementStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    public static long executedOnThread() {
+        return EXECUTED.get()[0];
+    }
+
+    static void record(String sql) {
+        EXECUTED.get()[0]++;
+        StatementStatistics statistics = CURRENT.get();
+        if (statistics != null && sql != null) {
+            statistics.add(normalize(sql));
+        }
+    }
+
+    void add(String sql) {
+        total++;
+        counts.merge(sql, 1, Integer::sum);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public Map<String, Integer> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    //threshold 번 이상 반복된 select
+    public Map<String, Integer> repeatedSelects(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        counts.forEach((sql, count) -> {
+            if (count >= threshold && isSelect(sql)) {
+                repeated.put(sql, count);
+            }
+        });
+        return repeated;
+    }
+
+    //use-sql-comments 주석과 format_sql 줄바꿈을 제거해서 같은 SQL 로 모은다
+    static String normalize(String sql) {
+        return sql.replaceAll("(?s)/\\*.*?\\*/", " ").replaceAll("\\s+", " ").trim();
+    }
+
+    private static boolean isSelect(String sql) {
+        return sql.regionMatches(true, 0, "select", 0, 6);
+    }
+}
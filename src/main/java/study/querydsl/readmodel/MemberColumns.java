@@ -0,0 +1,277 @@
+package study.querydsl.readmodel;
+
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.MemberSearchPredicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 회원 + 팀 검색용 컬럼 저장소 (불변 스냅샷)
+ *
+ * 행마다 값을 객체로 두지 않고 컬럼별 기본형 배열에 저장한다.
+ *  - age : int[] , member_id : long[] , 팀 : int[] (팀 번호 , 없으면 -1)
+ *  - username , team name : 사전 번호(int) 로 저장하고 값 -> 행 번호 목록(hash 인덱스)을 둔다
+ *  - age : 나이순으로 정렬한 행 번호(정렬 인덱스)로 범위 조건을 이진 탐색
+ * 검색 조건은 가장 좁은 인덱스로 후보 행을 고른 뒤 나머지 조건을 int 비교로 거른다. (박싱 없음)
+ * 결과는 member_id 순서이고 DTO 는 반환할 행만 만든다.
+ */
+class MemberColumns {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final long[] memberIds;
+    private final int[] ages;
+    private final int[] usernameCodes;
+    private final int[] teamCodes;
+
+    private final long[] teamIds;
+    private final int[] teamNameCodes;
+
+    private final String[] usernames;
+    private final String[] teamNames;
+    private final Map<String, Integer> usernameDictionary;
+    private final Map<String, Integer> teamNameDictionary;
+
+    private final int[][] rowsByUsername;
+    private final int[][] rowsByTeamName;
+    private final int[] rowsByAge;
+    private final int[] sortedAges;
+
+    private MemberColumns(Builder builder) {
+        int size = builder.size;
+        this.memberIds = Arrays.copyOf(builder.memberIds, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.usernameCodes = Arrays.copyOf(builder.usernameCodes, size);
+        this.teamCodes = Arrays.copyOf(builder.teamCodes, size);
+
+        this.teamIds = new long[builder.teamIds.size()];
+        this.teamNameCodes = new int[builder.teamIds.size()];
+        for (int i = 0; i < teamIds.length; i++) {
+            teamIds[i] = builder.teamIds.get(i);
+            teamNameCodes[i] = builder.teamNameCodes.get(i);
+        }
+
+        this.usernames = builder.usernames.toArray(new String[0]);
+        this.teamNames = builder.teamNames.toArray(new String[0]);
+        this.usernameDictionary = builder.usernameDictionary;
+        this.teamNameDictionary = builder.teamNameDictionary;
+
+        this.rowsByUsername = postings(usernameCodes, usernames.length);
+        int[] rowTeamNameCodes = new int[size];
+        for (int row = 0; row < size; row++) {
+            rowTeamNameCodes[row] = teamCodes[row] >= 0 ? teamNameCodes[teamCodes[row]] : -1;
+        }
+        this.rowsByTeamName = postings(rowTeamNameCodes, teamNames.length);
+
+        //(age , row) 를 long 하나로 묶어서 기본형 정렬
+        long[] ageRows = new long[size];
+        for (int row = 0; row < size; row++) {
+            ageRows[row] = ((long) ages[row] << 32) | row;
+        }
+        Arrays.sort(ageRows);
+        this.rowsByAge = new int[size];
+        this.sortedAges = new int[size];
+        for (int i = 0; i < size; i++) {
+            rowsByAge[i] = (int) ageRows[i];
+            sortedAges[i] = (int) (ageRows[i] >> 32);
+        }
+    }
+
+    int size() {
+        return memberIds.length;
+    }
+
+    //조건에 맞는 행 번호 (member_id 순)
+    int[] match(MemberSearchPredicate predicate) {
+        if (predicate.isEmpty()) {
+            return NO_ROWS;
+        }
+        int usernameCode = -1;
+        if (predicate.getUsername() != null) {
+            Integer code = usernameDictionary.get(predicate.getUsername());
+            if (code == null) {
+                return NO_ROWS;
+            }
+            usernameCode = code;
+        }
+        int teamNameCode = -1;
+        if (predicate.getTeamName() != null) {
+            Integer code = teamNameDictionary.get(predicate.getTeamName());
+            if (code == null) {
+                return NO_ROWS;
+            }
+            teamNameCode = code;
+        }
+        //부분 / 앞부분 일치는 행마다 문자열을 비교하지 않고 사전(서로 다른 회원명)에서 한번만 비교
+        boolean[] usernameMatches = null;
+        if (predicate.hasUsernameMatch()) {
+            usernameMatches = new boolean[usernames.length];
+            for (int code = 0; code < usernames.length; code++) {
+                String name = usernames[code];
+                usernameMatches[code] = name != null
+                        && (predicate.getUsernameStartsWith() == null || name.startsWith(predicate.getUsernameStartsWith()))
+                        && (predicate.getUsernameContains() == null || name.contains(predicate.getUsernameContains()));
+            }
+        }
+        int ageGoe = predicate.getAgeGoe() != null ? predicate.getAgeGoe() : Integer.MIN_VALUE;
+        int ageLoe = predicate.getAgeLoe() != null ? predicate.getAgeLoe() : Integer.MAX_VALUE;
+
+        //후보 행 : username -> 팀 이름 -> 나이 범위 순으로 좁은 인덱스 사용
+        int[] candidates;
+        int from = 0;
+        int to;
+        boolean sorted = true;
+        if (usernameCode >= 0) {
+            candidates = rowsByUsername[usernameCode];
+            to = candidates.length;
+        } else if (teamNameCode >= 0) {
+            candidates = rowsByTeamName[teamNameCode];
+            to = candidates.length;
+        } else if (predicate.getAgeGoe() != null || predicate.getAgeLoe() != null) {
+            candidates = rowsByAge;
+            from = lowerBound(sortedAges, ageGoe);
+            to = upperBound(sortedAges, ageLoe);
+            sorted = false;
+        } else {
+            candidates = null;
+            to = size();
+        }
+
+        int[] result = new int[Math.max(0, to - from)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int row = candidates != null ? candidates[i] : i;
+            if (usernameCode >= 0 && usernameCodes[row] != usernameCode) continue;
+            if (usernameMatches != null && !usernameMatches[usernameCodes[row]]) continue;
+            if (teamNameCode >= 0 && (teamCodes[row] < 0 || teamNameCodes[teamCodes[row]] != teamNameCode)) continue;
+            int age = ages[row];
+            if (age < ageGoe || age > ageLoe) continue;
+            result[count++] = row;
+        }
+        int[] rows = count == result.length ? result : Arrays.copyOf(result, count);
+        if (!sorted) {
+            Arrays.sort(rows);//행 번호 = member_id 순서
+        }
+        return rows;
+    }
+
+    List<MemberTeamDto> toDtos(int[] rows, int from, int to) {
+        List<MemberTeamDto> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            int team = teamCodes[row];
+            result.add(new MemberTeamDto(
+                    memberIds[row],
+                    usernames[usernameCodes[row]],
+                    ages[row],
+                    team >= 0 ? teamIds[team] : null,
+                    team >= 0 ? teamNames[teamNameCodes[team]] : null));
+        }
+        return result;
+    }
+
+    //codes 값별 행 번호 목록 (행 번호 오름차순)
+    private static int[][] postings(int[] codes, int dictionarySize) {
+        int[] counts = new int[dictionarySize];
+        for (int code : codes) {
+            if (code >= 0) counts[code]++;
+        }
+        int[][] postings = new int[dictionarySize][];
+        for (int code = 0; code < dictionarySize; code++) {
+            postings[code] = new int[counts[code]];
+        }
+        int[] next = new int[dictionarySize];
+        for (int row = 0; row < codes.length; row++) {
+            int code = codes[row];
+            if (code >= 0) postings[code][next[code]++] = row;
+        }
+        return postings;
+    }
+
+    //value 이상인 첫 위치
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    //value 초과인 첫 위치
+    private static int upperBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * member_id 오름차순으로 add 한다.
+     */
+    static class Builder {
+        private long[] memberIds = new long[1024];
+        private int[] ages = new int[1024];
+        private int[] usernameCodes = new int[1024];
+        private int[] teamCodes = new int[1024];
+        private int size;
+
+        private final List<Long> teamIds = new ArrayList<>();
+        private final List<Integer> teamNameCodes = new ArrayList<>();
+        private final Map<Long, Integer> teamCodeById = new HashMap<>();
+
+        private final List<String> usernames = new ArrayList<>();
+        private final List<String> teamNames = new ArrayList<>();
+        private final Map<String, Integer> usernameDictionary = new HashMap<>();
+        private final Map<String, Integer> teamNameDictionary = new HashMap<>();
+
+        Builder add(long memberId, String username, int age, Long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            ages[size] = age;
+            usernameCodes[size] = code(username, usernames, usernameDictionary);
+            teamCodes[size] = teamId != null ? teamCode(teamId, teamName) : -1;
+            size++;
+            return this;
+        }
+
+        MemberColumns build() {
+            return new MemberColumns(this);
+        }
+
+        private int teamCode(Long teamId, String teamName) {
+            Integer code = teamCodeById.get(teamId);
+            if (code == null) {
+                code = teamIds.size();
+                teamIds.add(teamId);
+                teamNameCodes.add(code(teamName, teamNames, teamNameDictionary));
+                teamCodeById.put(teamId, code);
+            }
+            return code;
+        }
+
+        private static int code(String value, List<String> values, Map<String, Integer> dictionary) {
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                dictionary.put(value, code);
+            }
+            return code;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package study.querydsl.readmodel;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.QTeam;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.TableModifiedEvent;
+import study.querydsl.repository.support.MemberSearchPredicate;
+import study.querydsl.repository.support.MemberSearchQueryTemplates;
+import study.querydsl.repository.support.ReloadingSnapshot;
+import study.querydsl.repository.support.UnflushedChanges;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 메모리 회원 검색 인덱스 (app.search-index.enabled=true)
+ *
+ * 회원 + 팀 전체를 {@link MemberColumns} 로 메모리에 올려두고 search / searchComplex 를 DB 조회 없이 처리한다.
+ * member , team 테이블이 변경되면({@link TableModifiedEvent}) 즉시 사용을 멈추고(DB 조회로 대체)
+ * 트랜잭션이 끝난 뒤 app.search-index.refresh-delay-millis 동안 변경을 모아서 다시 적재한다. ({@link ReloadingSnapshot})
+ */
+@Component
+public class MemberSearchIndex {
+
+    private final boolean enabled;
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int fetchSize;
+    private final ReloadingSnapshot<MemberColumns> columns;
+
+    public MemberSearchIndex(@Value("${app.search-index.enabled:false}") boolean enabled,
+                             @Value("${app.search-index.refresh-delay-millis:200}") long refreshDelayMillis,
+                             @Value("${app.search-index.fetch-size:1000}") int fetchSize,
+                             EntityManager em, PlatformTransactionManager transactionManager,
+                             @Qualifier("readModelScheduler") TaskScheduler scheduler) {
+        this.enabled = enabled;
+        this.fetchSize = fetchSize;
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.columns = new ReloadingSnapshot<>("member search index", new HashSet<>(Arrays.asList("member", "team")),
+                this::load, scheduler, refreshDelayMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    //적재가 끝났고 이후 변경이 없는 상태
+    public boolean isReadable() {
+        return enabled && columns.current() != null && !UnflushedChanges.exist(em);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberColumns current = snapshot();
+        int[] rows = current.match(MemberSearchPredicate.of(condition));
+        return current.toDtos(rows, 0, rows.length);
+    }
+
+    //전체 건수는 매칭된 행 수 (count 쿼리 없음)
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        MemberColumns current = snapshot();
+        int[] rows = current.match(MemberSearchPredicate.of(condition));
+        int from = (int) Math.min(pageable.getOffset(), rows.length);
+        int to = Math.min(from + pageable.getPageSize(), rows.length);
+        return new PageImpl<>(current.toDtos(rows, from, to), pageable, rows.length);
+    }
+
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        if (enabled) {
+            columns.onTableModified(event);
+        }
+    }
+
+    public void reload() {
+        columns.reload();
+    }
+
+    //isReadable 확인 후 그 사이 변경되었어도 마지막 스냅샷으로 응답
+    private MemberColumns snapshot() {
+        MemberColumns current = columns.latest();
+        if (current == null) {
+            throw new IllegalStateException("member search index is not loaded");
+        }
+        return current;
+    }
+
+    //member left join team 을 member_id 순으로 읽어서 새 스냅샷을 만든다
+    private MemberColumns load() {
+        return transactionTemplate.execute(status -> {
+            MemberColumns.Builder builder = new MemberColumns.Builder();
+            try (CloseableIterator<MemberTeamDto> iterator = queryFactory
+                    .select(MemberSearchQueryTemplates.MEMBER_TEAM_DTO)
+                    .from(QMember.member)
+                    .leftJoin(QMember.member.team, QTeam.team)
+                    .orderBy(QMember.member.id.asc())
+                    .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                    .iterate()) {
+                while (iterator.hasNext()) {
+                    MemberTeamDto dto = iterator.next();
+                    builder.add(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName());
+                }
+            }
+            return builder.build();
+        });
+    }
+}
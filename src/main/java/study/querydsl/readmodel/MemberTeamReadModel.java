@@ -0,0 +1,265 @@
+package study.querydsl.readmodel;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.QMemberTeamView;
+import study.querydsl.Entity.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.event.BulkTableModifiedEvent;
+import study.querydsl.repository.support.MemberSearchPredicate;
+import study.querydsl.repository.support.UnflushedChanges;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 조인 없는 회원 검색용 읽기 모델 (member_team_view)
+ *
+ * app.read-model.member-team.enabled=true 이면 회원 / 팀 엔티티 변경을 같은 트랜잭션 안에서
+ * member_team_view 에 반영하고 , MemberRepositoryCustom.search 가 member , team 조인 대신 이 테이블을 읽는다.
+ * 벌크 연산({@link BulkTableModifiedEvent})은 변경된 행을 알 수 없으므로 재생성이 끝날 때까지 조인 쿼리를 사용한다.
+ * 재생성은 app.read-model.member-team.rebuild-delay-millis 동안 벌크 연산을 모아서 한번 실행한다.
+ */
+@Slf4j
+@Component
+public class MemberTeamReadModel implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final QMemberTeamView VIEW = QMemberTeamView.memberTeamView;
+    private static final QMemberTeamDto MEMBER_TEAM_DTO = new QMemberTeamDto(
+            VIEW.memberId, VIEW.username, VIEW.age, VIEW.teamId, VIEW.teamName);
+
+    private static final String REBUILD = "merge into member_team_view (member_id, username, age, team_id, team_name) key (member_id) "
+            + "select m.member_id, m.username, m.age, t.id, t.name from member m left join team t on t.id = m.team_id";
+
+    private final boolean enabled;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler scheduler;
+    private final long rebuildDelayMillis;
+
+    private volatile boolean fresh;
+    private volatile boolean bulkInProgress;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    //커밋된 증분 반영 + 일괄 변경 횟수. 재생성 중에 바뀌면 재생성 결과를 믿을 수 없으므로 한번 더 재생성한다
+    private final AtomicLong version = new AtomicLong();
+
+    public MemberTeamReadModel(@Value("${app.read-model.member-team.enabled:false}") boolean enabled,
+                               @Value("${app.read-model.member-team.rebuild-delay-millis:200}") long rebuildDelayMillis,
+                               EntityManagerFactory entityManagerFactory, EntityManager em,
+                               PlatformTransactionManager transactionManager,
+                               @Qualifier("readModelScheduler") TaskScheduler scheduler) {
+        this.enabled = enabled;
+        this.entityManagerFactory = entityManagerFactory;
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduler = scheduler;
+        this.rebuildDelayMillis = rebuildDelayMillis;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    //리스너 등록 전에 저장된 데이터(InitMember 등)까지 포함해서 처음 한번 생성
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    //재생성이 끝나서 member , team 과 같은 상태
+    //현재 트랜잭션의 변경은 커밋 직전에 반영되므로 변경한 트랜잭션 안에서는 조인 쿼리를 사용한다
+    public boolean isReadable() {
+        return enabled && fresh
+                && !TransactionSynchronizationManager.hasResource(this)
+                && !UnflushedChanges.exist(em);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return queryFactory
+                .select(MEMBER_TEAM_DTO)
+                .from(VIEW)
+                .where(predicate.where(VIEW))
+                .fetch();
+    }
+
+    @EventListener
+    public void onBulkModified(BulkTableModifiedEvent event) {
+        if (enabled && (event.getTables().contains("member") || event.getTables().contains("team"))) {
+            //chunk 로 나눠서 실행 중이면 사용만 멈추고 작업이 끝난 뒤 한번만 재생성한다
+            bulkInProgress = event.isPending();
+            markStale();
+            if (!event.isPending()) {
+                scheduleRebuild();
+            }
+        }
+    }
+
+    /**
+     * member left join team 결과로 member_team_view 를 다시 만든다.
+     * 재생성 중에 커밋된 증분 변경이 있으면 한번 더 재생성하고 그동안은 읽지 않는다.
+     */
+    public void rebuild() {
+        long startVersion = version.get();
+        transactionTemplate.execute(status -> {
+            em.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("delete from member_team_view");
+                    statement.executeUpdate(REBUILD);
+                }
+            });
+            return null;
+        });
+        synchronized (this) {
+            if (version.get() != startVersion) {
+                if (!bulkInProgress) {
+                    scheduleRebuild();
+                }
+                return;
+            }
+            fresh = true;
+        }
+        log.info("member_team_view rebuilt");
+    }
+
+    //진행 중인 재생성이 fresh 로 바꾸지 못하도록 세대값도 올린다
+    private synchronized void markStale() {
+        fresh = false;
+        version.incrementAndGet();
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            rebuildScheduled.set(false);
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("member_team_view rebuild failed", e);
+                scheduleRebuild();
+            }
+        }, new Date(System.currentTimeMillis() + rebuildDelayMillis));
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        memberSaved(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Team) {
+            writer(event.getSession()).teamRenamed((Long) event.getId(), ((Team) event.getEntity()).getName());
+            return;
+        }
+        memberSaved(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            writer(event.getSession()).memberDeleted((Long) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void memberSaved(EventSource session, Object entity) {
+        if (!(entity instanceof Member)) {
+            return;
+        }
+        Member member = (Member) entity;
+        writer(session).memberSaved(member.getId(), member.getUsername(), member.getAge(), teamId(member.getTeam()));
+    }
+
+    //트랜잭션마다 하나의 writer 를 하이버네이트 커밋 직전 작업으로 등록한다
+    private MemberTeamViewWriter writer(EventSource session) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            MemberTeamViewWriter writer = new MemberTeamViewWriter();
+            session.getActionQueue().registerProcess(writer);
+            return writer;
+        }
+        MemberTeamViewWriter writer = (MemberTeamViewWriter) TransactionSynchronizationManager.getResource(this);
+        if (writer == null) {
+            writer = new MemberTeamViewWriter();
+            session.getActionQueue().registerProcess(writer);
+            TransactionSynchronizationManager.bindResource(this, writer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberTeamReadModel.this);
+                    if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                        version.incrementAndGet();
+                    }
+                }
+            });
+        }
+        return writer;
+    }
+
+    //팀 프록시는 초기화하지 않고 식별자만 꺼낸다
+    private static Long teamId(Team team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team.getId();
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.readmodel;
+
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 한 트랜잭션에서 변경된 회원 / 팀 이름을 모아두었다가 커밋 직전(flush 이후)에
+ * 같은 커넥션으로 member_team_view 에 jdbc batch 로 반영한다.
+ * 같은 회원이 여러번 바뀌면 마지막 상태만 쓴다.
+ */
+class MemberTeamViewWriter implements BeforeTransactionCompletionProcess {
+
+    //H2 merge : 재생성(MemberTeamReadModel.rebuild) 과 겹쳐도 키 중복으로 실패하지 않는다
+    static final String UPSERT = "merge into member_team_view (member_id, username, age, team_id, team_name) key (member_id) "
+            + "values (?, ?, ?, ?, (select t.name from team t where t.id = ?))";
+    static final String DELETE = "delete from member_team_view where member_id = ?";
+    static final String RENAME_TEAM = "update member_team_view set team_name = ? where team_id = ?";
+
+    //회원 id -> 마지막 상태 (삭제는 null)
+    private final Map<Long, Row> members = new LinkedHashMap<>();
+    private final Map<Long, String> teamNames = new LinkedHashMap<>();
+
+    void memberSaved(Long memberId, String username, int age, Long teamId) {
+        members.put(memberId, new Row(username, age, teamId));
+    }
+
+    void memberDeleted(Long memberId) {
+        members.put(memberId, null);
+    }
+
+    void teamRenamed(Long teamId, String name) {
+        teamNames.put(teamId, name);
+    }
+
+    @Override
+    public void doBeforeTransactionCompletion(SessionImplementor session) {
+        if (members.isEmpty() && teamNames.isEmpty()) {
+            return;
+        }
+        session.doWork(connection -> {
+            try (PreparedStatement delete = connection.prepareStatement(DELETE);
+                 PreparedStatement upsert = connection.prepareStatement(UPSERT);
+                 PreparedStatement rename = connection.prepareStatement(RENAME_TEAM)) {
+                int deletes = 0;
+                int upserts = 0;
+                for (Map.Entry<Long, Row> entry : members.entrySet()) {
+                    Row row = entry.getValue();
+                    if (row == null) {
+                        delete.setLong(1, entry.getKey());
+                        delete.addBatch();
+                        deletes++;
+                        continue;
+                    }
+                    upsert.setLong(1, entry.getKey());
+                    upsert.setString(2, row.username);
+                    upsert.setInt(3, row.age);
+                    upsert.setObject(4, row.teamId);
+                    upsert.setObject(5, row.teamId);
+                    upsert.addBatch();
+                    upserts++;
+                }
+                if (deletes > 0) {
+                    delete.executeBatch();
+                }
+                if (upserts > 0) {
+                    upsert.executeBatch();
+                }
+                if (!teamNames.isEmpty()) {
+                    for (Map.Entry<Long, String> entry : teamNames.entrySet()) {
+                        rename.setString(1, entry.getValue());
+                        rename.setLong(2, entry.getKey());
+                        rename.addBatch();
+                    }
+                    rename.executeBatch();
+                }
+            }
+        });
+    }
+
+    private static class Row {
+        private final String username;
+        private final int age;
+        private final Long teamId;
+
+        Row(String username, int age, Long teamId) {
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+        }
+    }
+}
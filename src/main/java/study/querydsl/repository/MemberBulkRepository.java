@@ -0,0 +1,255 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.Team;
+import study.querydsl.event.BulkModificationDetector;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 대량 저장 / 수정 / 삭제 전용 저장소
+ *
+ * batch size 마다 flush / clear 해서 jdbc batch insert 로 모아 보내고 영속성 컨텍스트가 커지지 않게 한다.
+ * (hibernate.jdbc.batch_size , order_inserts 설정과 시퀀스 pooled 할당이 함께 필요)
+ *
+ * 대량 수정 / 삭제는 member_id 범위로 나눠서 chunk 마다 커밋하므로 한 구문이 넓은 범위를 오래 잠그지 않는다.
+ * 카운트 캐시와 2차 캐시는 TableModificationInspector 가 발행하는 이벤트로 , 읽기 모델과 팀 통계는
+ * BulkModificationDetector 가 발행하는 이벤트로 함께 갱신된다.
+ */
+@Slf4j
+@Repository
+public class MemberBulkRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int chunkSize;
+    private final int updateChunkSize;
+    private final long pauseMillis;
+    private final BulkModificationDetector bulkModificationDetector;
+
+    public MemberBulkRepository(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                BulkModificationDetector bulkModificationDetector,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize,
+                                @Value("${app.bulk.chunk-size:10000}") int chunkSize,
+                                @Value("${app.bulk.update-chunk-size:1000}") int updateChunkSize,
+                                @Value("${app.bulk.pause-millis:0}") long pauseMillis) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+        this.updateChunkSize = updateChunkSize;
+        this.pauseMillis = pauseMillis;
+        this.bulkModificationDetector = bulkModificationDetector;
+    }
+
+    /**
+     * 하나의 트랜잭션으로 저장. 저장한 건수를 반환
+     * 호출한 쪽 트랜잭션에 참여하므로 영속성 컨텍스트 전체를 비우지 않고 , batch size 마다 저장한 회원만 분리(detach)한다.
+     * (호출한 쪽이 로딩한 다른 엔티티는 그대로 관리된다)
+     */
+    @Transactional
+    public int saveAll(Iterable<Member> members) {
+        int count = 0;
+        List<Member> batch = new ArrayList<>(batchSize);
+        for (Member member : members) {
+            em.persist(member);
+            batch.add(member);
+            if (++count % batchSize == 0) {
+                flushAndDetach(batch);
+            }
+        }
+        flushAndDetach(batch);
+        return count;
+    }
+
+    private void flushAndDetach(List<Member> batch) {
+        em.flush();
+        batch.forEach(em::detach);
+        batch.clear();
+    }
+
+    /**
+     * 성능 테스트용 데이터 생성. teamCount 개의 팀에 memberCount 명을 나눠서 저장한다.
+     * chunk size 마다 커밋하므로 수백만 건도 하나의 트랜잭션/메모리에 쌓이지 않는다.
+     */
+    public long seed(int teamCount, int memberCount) {
+        List<Long> teamIds = transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(teamCount);
+            for (int i = 0; i < teamCount; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                ids.add(team.getId());
+            }
+            return ids;
+        });
+
+        for (int start = 0; start < memberCount; start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, memberCount);
+            transactionTemplate.execute(status -> {
+                for (int i = from; i < to; i++) {
+                    Member member = new Member("member" + i, i % 100);
+                    //연관관계 편의 메서드는 team.members 컬렉션을 초기화하므로 참조(프록시)만 세팅
+                    if (!teamIds.isEmpty()) {
+                        member.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+                    }
+                    em.persist(member);
+                    if ((i - from + 1) % batchSize == 0) {
+                        em.flush();
+                        em.clear();
+                    }
+                }
+                return null;
+            });
+        }
+        return memberCount;
+    }
+
+    /**
+     * where 에 맞는 회원을 member_id 범위(app.bulk.update-chunk-size)로 나눠서 수정한다. 수정한 건수를 반환
+     * ex) updateInChunks(member.age.lt(28), update -> update.set(member.age, member.age.add(1)), progress -> {})
+     *
+     * 트랜잭션 밖에서 호출하면 chunk 마다 커밋하고, 이미 트랜잭션 안이면 그 트랜잭션에 참여한다.
+     * 벌크 연산 후에는 영속성 컨텍스트의 회원 엔티티가 DB 와 달라지므로 분리(detach)한다. (다른 엔티티는 그대로)
+     * JPQL 벌크 연산이므로 where 에는 회원 필드만 사용할 수 있다. (조인 불가)
+     * 다음 chunk 는 남은 회원 중 가장 작은 member_id 부터 시작하므로 id 가 띄엄띄엄해도 빈 chunk 를 돌지 않는다.
+     */
+    public long updateInChunks(Predicate where, Consumer<JPAUpdateClause> assignments, Consumer<Progress> progress) {
+        return inChunks("update", where, progress, range -> {
+            JPAUpdateClause update = queryFactory.update(QMember.member).where(range, where);
+            assignments.accept(update);
+            return update.execute();
+        });
+    }
+
+    public long deleteInChunks(Predicate where, Consumer<Progress> progress) {
+        return inChunks("delete", where, progress,
+                range -> queryFactory.delete(QMember.member).where(range, where).execute());
+    }
+
+    //chunk 마다 커밋되어도 변경 이벤트를 받는 쪽(읽기 모델 , 팀 통계)은 전체 작업이 끝난 뒤 한번만 다시 계산한다
+    private long inChunks(String operation, Predicate where, Consumer<Progress> progress, Function<Predicate, Long> statement) {
+        return bulkModificationDetector.chunked(() -> runChunks(operation, where, progress, statement));
+    }
+
+    private long runChunks(String operation, Predicate where, Consumer<Progress> progress, Function<Predicate, Long> statement) {
+        Tuple bounds = queryFactory
+                .select(QMember.member.id.min(), QMember.member.id.max())
+                .from(QMember.member)
+                .where(where)
+                .fetchOne();
+        Long minId = bounds != null ? bounds.get(QMember.member.id.min()) : null;
+        Long maxId = bounds != null ? bounds.get(QMember.member.id.max()) : null;
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+
+        long total = 0;
+        int chunks = 0;
+        Long from = minId;
+        while (from != null) {
+            long start = from;
+            long end = Math.min(start + updateChunkSize - 1, maxId);
+            Long affected = transactionTemplate.execute(status -> {
+                //아직 반영하지 않은 변경을 먼저 내보내고 , 벌크 연산 후에는 이미 로딩된(오래된) 회원을 비운다
+                em.flush();
+                long rows = statement.apply(QMember.member.id.between(start, end));
+                detachMembers(status);
+                return rows;
+            });
+            total += affected != null ? affected : 0;
+            chunks++;
+            from = end < maxId ? nextId(where, end, maxId) : null;
+
+            Progress current = new Progress(operation, chunks, total, from != null ? end : maxId, maxId);
+            progress.accept(current);
+            log.debug("bulk {}", current);
+            pause();
+        }
+        log.info("bulk {} finished : {} rows in {} chunks", operation, total, chunks);
+        return total;
+    }
+
+    //다음 chunk 시작 id (남은 회원이 없으면 null)
+    private Long nextId(Predicate where, long after, long maxId) {
+        return queryFactory
+                .select(QMember.member.id.min())
+                .from(QMember.member)
+                .where(QMember.member.id.gt(after), QMember.member.id.loe(maxId), where)
+                .fetchOne();
+    }
+
+    //chunk 트랜잭션이면 전부 비우고 , 호출한 쪽 트랜잭션에 참여 중이면 회원 엔티티만 분리한다
+    private void detachMembers(TransactionStatus status) {
+        if (status.isNewTransaction()) {
+            em.clear();
+            return;
+        }
+        PersistenceContext context = em.unwrap(SessionImplementor.class).getPersistenceContext();
+        for (Object entity : new ArrayList<>(context.getEntitiesByKey().values())) {
+            if (entity instanceof Member) {
+                em.detach(entity);
+            }
+        }
+    }
+
+    //다른 트랜잭션이 잠금을 얻을 수 있도록 chunk 사이에 쉰다
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("bulk operation interrupted", e);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Progress {
+        private final String operation;
+        private final int chunks;
+        private final long affectedRows;
+        private final long lastId;
+        private final long maxId;
+
+        Progress(String operation, int chunks, long affectedRows, long lastId, long maxId) {
+            this.operation = operation;
+            this.chunks = chunks;
+            this.affectedRows = affectedRows;
+            this.lastId = lastId;
+            this.maxId = maxId;
+        }
+
+        public boolean isDone() {
+            return lastId >= maxId;
+        }
+    }
+}
@@ -1,24 +1,39 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.Entity.Member;
 import study.querydsl.Entity.QMember;
 import study.querydsl.Entity.QTeam;
+import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.monitor.QueryMetrics;
+import study.querydsl.repository.support.MemberSearchPredicate;
+import study.querydsl.repository.support.MemberSearchQueryTemplates;
+import study.querydsl.repository.support.ReadOnlyQuery;
+import study.querydsl.repository.support.SearchCoalescer;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
-
-import static org.springframework.util.StringUtils.hasText;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 @Repository
@@ -26,11 +41,25 @@ public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-
-    public MemberJpaRepository(EntityManager em){
+    private final int streamFetchSize;
+    private final int streamClearInterval;
+    private final MemberSearchQueryTemplates queryTemplates;
+    private final QueryMetrics metrics;
+    private final SearchCoalescer coalescer;
+
+    public MemberJpaRepository(EntityManager em,
+                               MemberSearchQueryTemplates queryTemplates,
+                               QueryMetrics metrics,
+                               SearchCoalescer coalescer,
+                               @Value("${app.query.stream.fetch-size:500}") int streamFetchSize,
+                               @Value("${app.query.stream.clear-interval:1000}") int streamClearInterval){
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.queryTemplates = queryTemplates;
+        this.metrics = metrics;
+        this.coalescer = coalescer;
+        this.streamFetchSize = streamFetchSize;
+        this.streamClearInterval = streamClearInterval;
     }
 
     public void save(Member member){
@@ -66,26 +95,19 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
 
-        //where의 조건조합
-        BooleanBuilder builder = new BooleanBuilder();
-        if (hasText(condition.getUsername())) {
-            builder.and(QMember.member.username.eq(condition.getUsername()));
-        }
-        if (hasText(condition.getUsername())) {
-            builder.and(QTeam.team.name.eq(condition.getTeamName()));
-        }
-
-        if(condition.getAgeGoe() != null){
-            builder.and(QMember.member.age.goe(condition.getAgeGoe()));
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        if(condition.getAgeLoe() != null){
-            builder.and(QMember.member.age.goe(condition.getAgeLoe()));
-        }
+        //where의 조건조합 (빈 문자열 무시 , 나이 범위는 between)
+        BooleanBuilder builder = new BooleanBuilder();
+        builder.and(predicate.toPredicate());
 
-        return queryFactory
+        return metrics.record("memberJpa.searchByBuilder", () -> queryFactory
                 .select(new QMemberTeamDto(
                         QMember.member.id.as("memberId"),
                         QMember.member.username,
@@ -95,56 +117,106 @@ public class MemberJpaRepository {
                 .from(QMember.member)
                 .leftJoin(QMember.member.team , QTeam.team)
                 .where(builder)
-                .fetch();
+                .fetch());
     }
 
+    //같은 조건의 동시 요청은 한번만 조회 (SearchCoalescer 가 읽기 전용 트랜잭션을 연다)
     public List<MemberTeamDto> search(MemberSearchCondition condition){
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        QMember.member.id.as("memberId"),
-                        QMember.member.username,
-                        QMember.member.age,
-                        QTeam.team.id.as("teamId"),
-                        QTeam.team.name.as("teamName")))
-                .from(QMember.member)
-                .leftJoin(QMember.member.team , QTeam.team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        //조건 조합별로 미리 렌더링된 JPQL 재사용
+        return coalescer.search("memberJpa.search", MemberSearchPredicate.of(condition).key("memberJpa.search"),
+                () -> metrics.record("memberJpa.search", () -> queryTemplates.fetch(condition)), MemberTeamDto::copy);
     }
 
-    public List<Member> searchMember(MemberSearchCondition condition){
-        return queryFactory
-                .selectFrom(QMember.member)
+    //전체 결과를 List로 만들지 않고 forward-only 커서(ScrollableResults)로 한 건씩 읽는다.
+    //트랜잭션 안에서 사용해야 하고 다 읽은 후에는 반드시 close 해야 한다. (try-with-resources)
+    public Stream<MemberTeamDto> streamSearch(MemberSearchCondition condition){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return Stream.empty();
+        }
+        CloseableIterator<MemberTeamDto> iterator = queryFactory
+                .select(MemberSearchQueryTemplates.MEMBER_TEAM_DTO)
+                .from(QMember.member)
                 .leftJoin(QMember.member.team , QTeam.team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                        //ageBetween(condition.getAgeLoe(),condition.getAgeGoe())
-                )
-                .fetch();
+                .where(predicate.where())
+                .setHint(QueryHints.HINT_FETCH_SIZE, streamFetchSize)//jdbc 드라이버가 한번에 가져올 row 수
+                .iterate();
+
+        //영속성 컨텍스트가 계속 커지지 않도록 일정 건수마다 비워준다
+        AtomicLong rows = new AtomicLong();
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .peek(dto -> {
+                    if (rows.incrementAndGet() % streamClearInterval == 0) {
+                        em.clear();
+                    }
+                })
+                .onClose(iterator::close);
     }
 
-    //null체크만 조심하면 조립도 가능하고 재사용도 가능하다
-    private BooleanExpression ageBetween(int ageLoe , int ageGoe){
-        return ageGoe(ageLoe).and(ageGoe(ageGoe));
+    //streamSearch 를 읽기 전용 트랜잭션 안에서 끝까지 소비한다. 처리한 건수를 반환
+    @Transactional(readOnly = true)
+    public long forEachSearch(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer){
+        AtomicLong count = new AtomicLong();
+        try (Stream<MemberTeamDto> stream = streamSearch(condition)) {
+            stream.forEach(dto -> {
+                consumer.accept(dto);
+                count.incrementAndGet();
+            });
+        }
+        return count.get();
     }
-    public BooleanExpression usernameEq(String username){
-        return hasText(username) ? QMember.member.username.eq(username) : null;
+
+    @Transactional(readOnly = true)
+    public List<Member> searchMember(MemberSearchCondition condition){
+        return searchMember(condition , false);
     }
-    public BooleanExpression teamNameEq(String teamName){
-        return hasText(teamName) ? QTeam.team.name.eq(teamName) : null;
+
+    //조회 전용 목록 : 엔티티를 읽기 전용으로 로딩 (변경 감지 스냅샷 없음 , 값을 바꿔도 반영되지 않는다)
+    @Transactional(readOnly = true)
+    public List<Member> searchMemberReadOnly(MemberSearchCondition condition){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return metrics.record("memberJpa.searchMemberReadOnly", () ->
+                ReadOnlyQuery.readOnly(predicate.joinTeamIfNeeded(queryFactory.selectFrom(QMember.member)))
+                        .where(predicate.where())
+                        .fetch());
     }
-    public BooleanExpression ageGoe(Integer ageGoe){
-        return ageGoe != null ? QMember.member.age.goe(ageGoe) : null;
+
+    //엔티티 없이 필요한 값만 DTO 로 조회
+    @Transactional(readOnly = true)
+    public List<MemberDto> searchMemberDto(MemberSearchCondition condition){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return metrics.record("memberJpa.searchMemberDto", () ->
+                predicate.joinTeamIfNeeded(queryFactory
+                        .select(new QMemberDto(QMember.member.username, QMember.member.age))
+                        .from(QMember.member))
+                        .where(predicate.where())
+                        .fetch());
     }
-    public BooleanExpression ageLoe(Integer ageLoe){
-        return ageLoe != null ? QMember.member.age.loe(ageLoe) : null;
+
+    //fetchTeam : 팀을 페치조인으로 함께 조회한다. (결과에서 getTeam() 을 사용한다면 true)
+    //false 면 팀은 프록시로 남고 default_batch_fetch_size 만큼 in 절로 묶어서 지연로딩 된다
+    @Transactional(readOnly = true)
+    public List<Member> searchMember(MemberSearchCondition condition , boolean fetchTeam){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return new ArrayList<>();
+        }
+        JPAQuery<Member> query = queryFactory.selectFrom(QMember.member);
+        if (fetchTeam) {
+            query.leftJoin(QMember.member.team , QTeam.team).fetchJoin();
+        } else {
+            //팀 조건이 없으면 조인하지 않는다
+            predicate.joinTeamIfNeeded(query);
+        }
+        return metrics.record(fetchTeam ? "memberJpa.searchMemberFetchTeam" : "memberJpa.searchMember", () -> query
+                .where(predicate.where())
+                .fetch());
     }
 }
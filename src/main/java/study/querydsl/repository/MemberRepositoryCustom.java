@@ -2,10 +2,14 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.PageCountStrategy;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface MemberRepositoryCustom {
 
@@ -14,4 +18,16 @@ public interface MemberRepositoryCustom {
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition , Pageable pageable);
 
     Page<MemberTeamDto> searchComplex(MemberSearchCondition condition , Pageable pageable);
+
+    //전체 건수를 구하는 방법을 호출마다 선택
+    Page<MemberTeamDto> searchPage(MemberSearchCondition condition , Pageable pageable , PageCountStrategy countStrategy);
+
+    //offset 없이 member_id 기준 커서로 다음 페이지를 조회 (깊은 페이지도 page size 만큼만 읽는다)
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition , MemberCursor cursor);
+
+    //전체 건수가 필요 없는 경우 (무한 스크롤) : page size + 1 건만 읽고 count 쿼리는 실행하지 않는다
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition , Pageable pageable);
+
+    //searchPage 를 검색 전용 풀에서 실행 (query timeout , 풀이 가득 차면 RejectedExecutionException 으로 실패)
+    CompletableFuture<Page<MemberTeamDto>> searchPageAsync(MemberSearchCondition condition , Pageable pageable , PageCountStrategy countStrategy);
 }
@@ -1,103 +1,141 @@
 package study.querydsl.repository;
 
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.Entity.Member;
 import study.querydsl.Entity.QMember;
 import study.querydsl.Entity.QTeam;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.monitor.QueryMetrics;
+import study.querydsl.readmodel.MemberSearchIndex;
+import study.querydsl.readmodel.MemberTeamReadModel;
+import study.querydsl.repository.support.AsyncQueryRunner;
+import study.querydsl.repository.support.MemberSearchPredicate;
+import study.querydsl.repository.support.MemberSearchQueryTemplates;
+import study.querydsl.repository.support.PageCountStrategy;
+import study.querydsl.repository.support.QueryCountCache;
+import study.querydsl.repository.support.SearchCoalescer;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
-import static org.springframework.util.StringUtils.hasText;
-
+//조회 메소드는 읽기 전용 트랜잭션 : 복제본 라우팅(app.datasource.replica)이 켜져 있으면 복제본에서 실행된다
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
+    //CustomH2Dialect 에 등록한 count(*) over()
+    private static final NumberExpression<Long> TOTAL_COUNT = Expressions.numberTemplate(Long.class, "count_over()");
+
     private final JPAQueryFactory queryFactory;
+    private final QueryCountCache countCache;
+    private final MemberSearchQueryTemplates queryTemplates;
+    private final QueryMetrics metrics;
+    private final AsyncQueryRunner asyncQueryRunner;
+    private final MemberTeamReadModel readModel;
+    private final MemberSearchIndex searchIndex;
+    private final SearchCoalescer coalescer;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, QueryCountCache countCache,
+                                MemberSearchQueryTemplates queryTemplates, QueryMetrics metrics,
+                                AsyncQueryRunner asyncQueryRunner, MemberTeamReadModel readModel,
+                                MemberSearchIndex searchIndex, SearchCoalescer coalescer) {
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.queryTemplates = queryTemplates;
+        this.metrics = metrics;
+        this.asyncQueryRunner = asyncQueryRunner;
+        this.readModel = readModel;
+        this.searchIndex = searchIndex;
+        this.coalescer = coalescer;
     }
 
+    //같은 조건의 동시 요청은 한번만 조회 (SearchCoalescer 가 읽기 전용 트랜잭션을 연다)
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition){
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        QMember.member.id.as("memberId"),
-                        QMember.member.username,
-                        QMember.member.age,
-                        QTeam.team.id.as("teamId"),
-                        QTeam.team.name.as("teamName")))
-                .from(QMember.member)
-                .leftJoin(QMember.member.team , QTeam.team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        return coalescer.search("member.search", MemberSearchPredicate.of(condition).key("member.search"), () -> doSearch(condition),
+                MemberTeamDto::copy);
+    }
+
+    private List<MemberTeamDto> doSearch(MemberSearchCondition condition){
+        //메모리 인덱스(app.search-index.enabled)가 최신이면 DB 조회 없이 처리
+        if (searchIndex.isReadable()) {
+            return metrics.record("member.search.index", () -> searchIndex.search(condition));
+        }
+        //읽기 모델(app.read-model.member-team.enabled)이 최신이면 조인 없이 member_team_view 에서 조회
+        if (readModel.isReadable()) {
+            return metrics.record("member.search.readModel", () -> readModel.search(condition));
+        }
+        //조건 조합별로 미리 렌더링된 JPQL 재사용
+        return metrics.record("member.search", () -> queryTemplates.fetch(condition));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        QMember.member.id.as("memberId"),
-                        QMember.member.username,
-                        QMember.member.age,
-                        QTeam.team.id.as("teamId"),
-                        QTeam.team.name.as("teamName")))
-                .from(QMember.member)
-                .leftJoin(QMember.member.team , QTeam.team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();//count쿼리와 컨텐츠 쿼리 2번을 날리기 위함
+        //page size + 1 건을 읽어서 다음 페이지가 있는지 판단한다
+        List<MemberTeamDto> rows = fetchLookAhead(condition , pageable);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<MemberTeamDto> content = hasNext ? new ArrayList<>(rows.subList(0, pageable.getPageSize())) : rows;
+
+        //다음 페이지가 없고 내용이 있으면 offset + 컨텐츠 사이즈가 전체 건수 (첫 페이지가 아니어도 count 생략)
+        if (!hasNext && (!content.isEmpty() || pageable.getOffset() == 0)) {
+            return new PageImpl<>(content , pageable , pageable.getOffset() + content.size());
+        }
+        //그 외에는 캐시된 count 재사용
+        long total = countCache.get(MemberSearchPredicate.of(condition).countKey(), () -> queryTemplates.count(condition));
+        return new PageImpl<>(content , pageable , total);
+    }
 
-        List<MemberTeamDto> content = results.getResults();//컨텐츠를 가져온다
-        long total = results.getTotal();//카운트 값을 가져온다
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> rows = fetchLookAhead(condition , pageable);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<MemberTeamDto> content = hasNext ? new ArrayList<>(rows.subList(0, pageable.getPageSize())) : rows;
+
+        return new SliceImpl<>(content , pageable , hasNext);
+    }
+
+    //fetchResults() 와 같이 컨텐츠 쿼리와 count 쿼리를 항상 2번 날린다 (둘 다 캐시된 JPQL 사용 , 비교용)
+    private Page<MemberTeamDto> searchPageAlwaysCount(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = queryTemplates.fetch(condition , pageable.getOffset() , pageable.getPageSize());//컨텐츠를 가져온다
+        long total = queryTemplates.count(condition);//카운트 값을 가져온다
 
         return new PageImpl<>(content , pageable , total);
         //pageImpl 은 page의 구현체
     }
 
+    private List<MemberTeamDto> fetchLookAhead(MemberSearchCondition condition, Pageable pageable) {
+        return metrics.record("member.searchLookAhead",
+                () -> queryTemplates.fetch(condition , pageable.getOffset() , pageable.getPageSize() + 1));
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        QMember.member.id.as("memberId"),
-                        QMember.member.username,
-                        QMember.member.age,
-                        QTeam.team.id.as("teamId"),
-                        QTeam.team.name.as("teamName")))
-                .from(QMember.member)
-                .leftJoin(QMember.member.team , QTeam.team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();//count쿼리와 컨텐츠 쿼리 2번을 날리기 위함
+        if (searchIndex.isReadable()) {
+            return metrics.record("member.searchComplex.index", () -> searchIndex.searchPage(condition , pageable));
+        }
+        List<MemberTeamDto> content = queryTemplates.fetch(condition , pageable.getOffset() , pageable.getPageSize());
 
         /*Long total = queryFactory
                 .select(QMember.member)
@@ -111,23 +149,14 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                 )
                 .fetchCount();*/
 
-        JPAQuery<Member> countQuery = queryFactory
-                .select(QMember.member)
-                .from(QMember.member)
-                .leftJoin(QMember.member.team , QTeam.team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
-
         //count 쿼리가 생략 가능한 경우 생략해서처리
         //페이지 시작이면서 컨텐츠 사이즈가 페이즈 사이즈 보다 작을때
         //마지막 페이지일때 (offset + 컨텐츠 사이즈를 더해서 전체 사이즈 구함)
 
-        return PageableExecutionUtils.getPage(content,pageable ,countQuery::fetchCount);
-        //위 조건이 맞는다면 () -> countQuery.fetchCount()가 카운트커리를 날리지 않아준다.
+        //같은 조건의 count 는 캐시된 값을 재사용한다 (TTL , 테이블 변경시 무효화)
+        return PageableExecutionUtils.getPage(content,pageable ,
+                () -> countCache.get(MemberSearchPredicate.of(condition).countKey(), () -> queryTemplates.count(condition)));
+        //위 조건이 맞는다면 count 쿼리를 날리지 않아준다.
 
 
 
@@ -139,19 +168,95 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     }
 
 
-    //null체크만 조심하면 조립도 가능하고 재사용도 가능하다
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable, PageCountStrategy countStrategy) {
+        switch (countStrategy) {
+            case FETCH_RESULTS:
+                return searchPageAlwaysCount(condition , pageable);
+            case LAZY_COUNT:
+                return searchComplex(condition , pageable);
+            case WINDOW:
+                return searchPageWindowCount(condition , pageable);
+            case LOOK_AHEAD:
+                return searchPageSimple(condition , pageable);
+            default:
+                throw new IllegalArgumentException("unknown count strategy : " + countStrategy);
+        }
+    }
 
-    public BooleanExpression usernameEq(String username){
-        return hasText(username) ? QMember.member.username.eq(username) : null;
+    @Override
+    public CompletableFuture<Page<MemberTeamDto>> searchPageAsync(MemberSearchCondition condition, Pageable pageable, PageCountStrategy countStrategy) {
+        return asyncQueryRunner.submit(() -> searchPage(condition , pageable , countStrategy));
     }
-    public BooleanExpression teamNameEq(String teamName){
-        return hasText(teamName) ? QTeam.team.name.eq(teamName) : null;
+
+    //컨텐츠와 전체 건수를 한번의 쿼리로 조회 (count(*) over())
+    private Page<MemberTeamDto> searchPageWindowCount(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList() , pageable , 0);
+        }
+        QMemberTeamDto projection = MemberSearchQueryTemplates.MEMBER_TEAM_DTO;
+
+        List<Tuple> rows = metrics.record("member.searchPageWindow", () -> queryFactory
+                .select(projection , TOTAL_COUNT)
+                .from(QMember.member)
+                .leftJoin(QMember.member.team , QTeam.team)
+                .where(
+                        predicate.where()
+                )
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch());
+
+        if (rows.isEmpty()) {
+            //결과가 없으면 전체 건수도 알 수 없다. 첫 페이지면 0건이고 아니면 count 쿼리로 구한다.
+            if (pageable.getOffset() == 0) {
+                return new PageImpl<>(Collections.emptyList() , pageable , 0);
+            }
+            long total = queryTemplates.count(condition);
+            return new PageImpl<>(Collections.emptyList() , pageable , total);
+        }
+
+        List<MemberTeamDto> content = rows.stream()
+                .map(row -> row.get(projection))
+                .collect(Collectors.toList());
+        Long total = rows.get(0).get(TOTAL_COUNT);
+
+        return new PageImpl<>(content , pageable , total);
     }
-    public BooleanExpression ageGoe(Integer ageGoe){
-        return ageGoe != null ? QMember.member.age.goe(ageGoe) : null;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberCursor cursor) {
+        int size = cursor.getSize();
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return new SliceImpl<>(new ArrayList<>() , PageRequest.of(0, size) , false);
+        }
+        List<MemberTeamDto> result = metrics.record("member.searchSlice", () -> queryFactory
+                .select(MemberSearchQueryTemplates.MEMBER_TEAM_DTO)
+                .from(QMember.member)
+                .leftJoin(QMember.member.team , QTeam.team)
+                .where(
+                        memberIdGt(cursor.getLastMemberId()),
+                        predicate.toPredicate()
+                )
+                .orderBy(QMember.member.id.asc())
+                .limit(size + 1)//한건 더 읽어서 다음 페이지 존재 여부를 판단 (count 쿼리 없음)
+                .fetch());
+
+        boolean hasNext = result.size() > size;
+        List<MemberTeamDto> content = hasNext ? new ArrayList<>(result.subList(0, size)) : result;
+
+        return new SliceImpl<>(content , PageRequest.of(0, size) , hasNext);
     }
-    public BooleanExpression ageLoe(Integer ageLoe){
-        return ageLoe != null ? QMember.member.age.loe(ageLoe) : null;
+
+
+    //null체크만 조심하면 조립도 가능하고 재사용도 가능하다
+
+    private BooleanExpression memberIdGt(Long lastMemberId){
+        return lastMemberId != null ? QMember.member.id.gt(lastMemberId) : null;
     }
 
 
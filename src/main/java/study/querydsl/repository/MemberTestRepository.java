@@ -1,15 +1,17 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.Entity.Member;
 import study.querydsl.Entity.QMember;
-import study.querydsl.Entity.QTeam;
+import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.repository.support.MemberSearchPredicate;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
 
@@ -17,9 +19,9 @@ import java.util.List;
 
 import static com.querydsl.jpa.JPAExpressions.select;
 import static com.querydsl.jpa.JPAExpressions.selectFrom;
-import static org.springframework.util.StringUtils.hasText;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
     public MemberTestRepository(){
@@ -39,71 +41,89 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
 
     //3.0 버전
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable){
-        JPAQuery<Member> query = selectFrom(QMember.member)
-                .leftJoin(QMember.member.team, QTeam.team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        JPAQuery<Member> query = predicate.joinTeamIfNeeded(selectFrom(QMember.member))
+                .where(predicate.where());
 
         List<Member> content = getQuerydsl().applyPagination(pageable,query)
                 .fetch();
 
-        return PageableExecutionUtils.getPage(content, pageable , query::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable , countOf(query));
+    }
+
+    //조회 전용 페이지 : 읽기 전용 엔티티
+    public Page<Member> searchPageReadOnly(MemberSearchCondition condition, Pageable pageable){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return applyPagination(pageable, query ->
+                readOnly(predicate.joinTeamIfNeeded(query.selectFrom(QMember.member)))
+                        .where(predicate.where())
+        );
+    }
+
+    //조회 전용 페이지 : 엔티티 없이 DTO 로 조회
+    public Page<MemberDto> searchPageDto(MemberSearchCondition condition, Pageable pageable){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return applyPagination(pageable, query ->
+                predicate.joinTeamIfNeeded(query
+                        .select(new QMemberDto(QMember.member.username, QMember.member.age))
+                        .from(QMember.member))
+                        .where(predicate.where())
+        );
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition , Pageable pageable){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return Page.empty(pageable);
+        }
         Page<Member> result = applyPagination(pageable, query ->
-                query.selectFrom(QMember.member)
-                        .leftJoin(QMember.member.team, QTeam.team)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
+                predicate.joinTeamIfNeeded(query.selectFrom(QMember.member))
+                        .where(predicate.where())
         );
         return result;
     }
 
     public Page<Member> applyPagination2(MemberSearchCondition condition , Pageable pageable){
         //content 쿼리 카운터 쿼리 나누기
-
-        Page<Member> result = applyPagination(pageable, contentQuery ->
-                        contentQuery.selectFrom(QMember.member)
-                        .leftJoin(QMember.member.team, QTeam.team)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        ) , 
-                countQuery -> countQuery
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        //count 결과는 검색 조건을 키로 캐시한다
+        Page<Member> result = applyPagination(pageable, predicate.countKey(), contentQuery ->
+                        predicate.joinTeamIfNeeded(contentQuery.selectFrom(QMember.member))
+                        .where(predicate.where()) ,
+                countQuery -> predicate.joinTeamIfNeeded(countQuery
                 .select(QMember.member.id)
-                .from(QMember.member)
-                .leftJoin(QMember.member.team, QTeam.team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-
-
+                .from(QMember.member))
+                .where(predicate.where())
         );
         return result;
     }
 
-    public BooleanExpression usernameEq(String username){
-        return hasText(username) ? QMember.member.username.eq(username) : null;
-    }
-    public BooleanExpression teamNameEq(String teamName){
-        return hasText(teamName) ? QTeam.team.name.eq(teamName) : null;
-    }
-    public BooleanExpression ageGoe(Integer ageGoe){
-        return ageGoe != null ? QMember.member.age.goe(ageGoe) : null;
-    }
-    public BooleanExpression ageLoe(Integer ageLoe){
-        return ageLoe != null ? QMember.member.age.loe(ageLoe) : null;
+    //count 쿼리를 컨텐츠 쿼리와 동시에 실행
+    public Page<Member> applyPaginationParallelCount(MemberSearchCondition condition , Pageable pageable){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        if (predicate.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return applyPaginationWithParallelCount(pageable, contentQuery ->
+                        predicate.joinTeamIfNeeded(contentQuery.selectFrom(QMember.member))
+                        .where(predicate.where()) ,
+                countQuery -> predicate.joinTeamIfNeeded(countQuery
+                .select(QMember.member.id)
+                .from(QMember.member))
+                .where(predicate.where())
+        );
     }
-
-
-
 }
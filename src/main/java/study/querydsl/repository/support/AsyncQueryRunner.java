@@ -0,0 +1,44 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 조회를 전용 풀에서 읽기 전용 트랜잭션으로 실행한다.
+ *
+ * 트랜잭션 timeout 은 공유 EntityManager 로 만든 쿼리에 query timeout 으로 적용되므로
+ * 시간이 초과되면 DB 에서 쿼리가 취소된다. 풀이 가득 차면 실패한 future 를 바로 돌려준다.
+ */
+@Component
+public class AsyncQueryRunner {
+
+    private final Executor executor;
+    private final TransactionTemplate transactionTemplate;
+
+    public AsyncQueryRunner(@Qualifier("searchQueryExecutor") Executor executor,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.query.async.timeout-seconds:3}") int timeoutSeconds) {
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setTimeout(timeoutSeconds);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        try {
+            return CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> query.get()), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 컨텐츠 쿼리로부터 count 쿼리를 만든다.
+ *
+ * where/having 이나 다른 조인에서 사용하지 않는 to-one left join 은 건수를 바꿀 수 없으므로 제거하고,
+ * 페치조인 , 정렬 , offset/limit 도 제외한다. 엔티티 대신 넘겨준 id 를 센다. (distinct 쿼리면 count(distinct id))
+ * group by 가 있는 쿼리는 건수가 그룹 수라서 지원하지 않는다.
+ */
+public final class CountQueries {
+
+    private CountQueries() {
+    }
+
+    public static JPAQuery<Long> countQuery(EntityManager em, JPAQuery<?> contentQuery, Expression<?> id) {
+        return new JPAQuery<>(em, countMetadata(contentQuery.getMetadata(), id));
+    }
+
+    public static QueryMetadata countMetadata(QueryMetadata content, Expression<?> id) {
+        if (!content.getGroupBy().isEmpty()) {
+            throw new IllegalArgumentException("group by query is not supported : " + content.getGroupBy());
+        }
+
+        //where , having 과 유지되는 조인에서 사용하는 별칭
+        Set<Expression<?>> used = new HashSet<>();
+        collectRoots(content.getWhere(), used);
+        collectRoots(content.getHaving(), used);
+
+        List<JoinExpression> joins = content.getJoins();
+        List<JoinExpression> kept = new ArrayList<>();
+        //뒤쪽 조인이 앞쪽 별칭을 사용할 수 있으므로 역순으로 판단
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            JoinExpression join = joins.get(i);
+            if (i > 0 && isRemovable(join, used)) {
+                continue;
+            }
+            collectRoots(join.getTarget(), used);
+            collectRoots(join.getCondition(), used);
+            kept.add(0, join);
+        }
+
+        DefaultQueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.setValidate(false);
+        for (JoinExpression join : kept) {
+            //페치조인 등 조인 플래그는 count 에서 사용하지 않는다
+            metadata.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                metadata.addJoinCondition(join.getCondition());
+            }
+        }
+        if (content.getWhere() != null) {
+            metadata.addWhere(content.getWhere());
+        }
+        if (content.getHaving() != null) {
+            metadata.addHaving(content.getHaving());
+        }
+        metadata.setProjection(Expressions.numberOperation(Long.class,
+                content.isDistinct() ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG, id));
+        return metadata;
+    }
+
+    //to-one 연관관계에 대한 left join 이면서 별칭을 아무데서도 사용하지 않는 경우
+    private static boolean isRemovable(JoinExpression join, Set<Expression<?>> used) {
+        if (join.getType() != JoinType.LEFTJOIN || !(join.getTarget() instanceof Operation)) {
+            return false;
+        }
+        Operation<?> alias = (Operation<?>) join.getTarget();
+        if (alias.getOperator() != Ops.ALIAS) {
+            return false;
+        }
+        Expression<?> association = alias.getArg(0);
+        Expression<?> aliasPath = alias.getArg(1);
+        return !(association instanceof CollectionExpression) && !used.contains(aliasPath);
+    }
+
+    private static void collectRoots(Expression<?> expr, Set<Expression<?>> roots) {
+        if (expr == null) {
+            return;
+        }
+        if (expr instanceof Path) {
+            roots.add(((Path<?>) expr).getRoot());
+        } else if (expr instanceof Operation) {
+            for (Expression<?> arg : ((Operation<?>) expr).getArgs()) {
+                collectRoots(arg, roots);
+            }
+        } else if (expr instanceof TemplateExpression) {
+            for (Object arg : ((TemplateExpression<?>) expr).getArgs()) {
+                if (arg instanceof Expression) {
+                    collectRoots((Expression<?>) arg, roots);
+                }
+            }
+        } else if (expr instanceof FactoryExpression) {
+            for (Expression<?> arg : ((FactoryExpression<?>) expr).getArgs()) {
+                collectRoots(arg, roots);
+            }
+        } else if (expr instanceof SubQueryExpression) {
+            //상관 서브쿼리가 바깥 별칭을 참조할 수 있다
+            QueryMetadata sub = ((SubQueryExpression<?>) expr).getMetadata();
+            collectRoots(sub.getWhere(), roots);
+            collectRoots(sub.getHaving(), roots);
+            for (JoinExpression join : sub.getJoins()) {
+                collectRoots(join.getTarget(), roots);
+                collectRoots(join.getCondition(), roots);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.Getter;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.QMemberTeamView;
+import study.querydsl.Entity.QTeam;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Collection;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색 조건({@link MemberSearchCondition})을 정규화한 where 절
+ *
+ * 모든 리포지토리가 같은 규칙으로 조건을 만든다.
+ *  - 빈 문자열은 조건 없음으로 본다
+ *  - ageGoe , ageLoe 가 모두 있으면 between 으로 합친다 (같으면 eq)
+ *  - ageGoe > ageLoe 처럼 만족할 수 없는 조건이면 isEmpty() -> DB 조회 없이 빈 결과를 반환한다
+ *  - 팀 이름 조건이 없으면 팀을 조회하지 않는 쿼리는 team 조인을 생략할 수 있다 (left join 이라 건수 변화 없음)
+ *  - 회원명 부분 / 앞부분 일치는 like 로 , 인덱스(MemberUsernameIndex)로 회원 id 를 먼저 찾았으면 member.id in (...) 으로 바꾼다
+ */
+@Getter
+public final class MemberSearchPredicate {
+
+    private final String username;
+    private final String teamName;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+    private final String usernameContains;
+    private final String usernameStartsWith;
+    //회원명 조건을 미리 풀어낸 회원 id (null 이면 like 사용)
+    private final Collection<Long> memberIds;
+
+    private MemberSearchPredicate(String username, String teamName, Integer ageGoe, Integer ageLoe,
+                                  String usernameContains, String usernameStartsWith, Collection<Long> memberIds) {
+        this.username = username;
+        this.teamName = teamName;
+        this.ageGoe = ageGoe;
+        this.ageLoe = ageLoe;
+        this.usernameContains = usernameContains;
+        this.usernameStartsWith = usernameStartsWith;
+        this.memberIds = memberIds;
+    }
+
+    public static MemberSearchPredicate of(MemberSearchCondition condition) {
+        return new MemberSearchPredicate(
+                hasText(condition.getUsername()) ? condition.getUsername() : null,
+                hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                condition.getAgeGoe(),
+                condition.getAgeLoe(),
+                hasText(condition.getUsernameContains()) ? condition.getUsernameContains() : null,
+                hasText(condition.getUsernameStartsWith()) ? condition.getUsernameStartsWith() : null,
+                null);
+    }
+
+    //회원명 부분 / 앞부분 일치 조건을 만족하는 회원 id 로 대체
+    public MemberSearchPredicate withMemberIds(Collection<Long> memberIds) {
+        return new MemberSearchPredicate(username, teamName, ageGoe, ageLoe, null, null, memberIds);
+    }
+
+    //결과 캐시 / 동시 조회 합치기 키. 정규화된 조건 값으로 만든다 (조건 객체는 변경될 수 있으므로 키로 쓰지 않는다)
+    public Object key(String queryName) {
+        return QueryCountCache.key(queryName,
+                username, teamName, ageGoe, ageLoe, usernameContains, usernameStartsWith, memberIds);
+    }
+
+    //회원 검색 count 캐시 키 (리포지토리가 달라도 같은 조건이면 같은 건수)
+    public Object countKey() {
+        return key("member.count");
+    }
+
+    //결과가 한 건도 없음이 확실한 조건
+    public boolean isEmpty() {
+        return ageGoe != null && ageLoe != null && ageGoe > ageLoe
+                || memberIds != null && memberIds.isEmpty();
+    }
+
+    public boolean hasUsernameMatch() {
+        return usernameContains != null || usernameStartsWith != null;
+    }
+
+    public boolean needsTeamJoin() {
+        return teamName != null;
+    }
+
+    //팀 조건이 있을 때만 left join 한다. (프로젝션이나 페치조인으로 팀이 필요하면 직접 조인)
+    public <T> JPAQuery<T> joinTeamIfNeeded(JPAQuery<T> query) {
+        return needsTeamJoin() ? query.leftJoin(QMember.member.team, QTeam.team) : query;
+    }
+
+    public Predicate[] where() {
+        return new Predicate[]{usernameEq(), usernameMatch(), teamNameEq(), age()};
+    }
+
+    //모든 조건을 and 로 묶은 결과. 조건이 없으면 null
+    public Predicate toPredicate() {
+        return ExpressionUtils.allOf(where());
+    }
+
+    public BooleanExpression usernameEq() {
+        return username != null ? QMember.member.username.eq(username) : null;
+    }
+
+    public BooleanExpression usernameMatch() {
+        if (memberIds != null) {
+            return QMember.member.id.in(memberIds);
+        }
+        return usernameLike(QMember.member.username);
+    }
+
+    public BooleanExpression teamNameEq() {
+        return teamName != null ? QTeam.team.name.eq(teamName) : null;
+    }
+
+    public BooleanExpression age() {
+        return age(QMember.member.age);
+    }
+
+    //같은 조건을 조인 없는 읽기 모델(member_team_view) 컬럼으로
+    public Predicate[] where(QMemberTeamView view) {
+        return new Predicate[]{
+                username != null ? view.username.eq(username) : null,
+                memberIds != null ? view.memberId.in(memberIds) : usernameLike(view.username),
+                teamName != null ? view.teamName.eq(teamName) : null,
+                age(view.age)};
+    }
+
+    //like '%x%' , like 'x%'
+    private BooleanExpression usernameLike(StringPath username) {
+        BooleanExpression contains = usernameContains != null ? username.contains(usernameContains) : null;
+        BooleanExpression startsWith = usernameStartsWith != null ? username.startsWith(usernameStartsWith) : null;
+        if (contains == null) {
+            return startsWith;
+        }
+        return startsWith != null ? startsWith.and(contains) : contains;
+    }
+
+    private BooleanExpression age(NumberPath<Integer> age) {
+        if (ageGoe != null && ageLoe != null) {
+            return ageGoe.equals(ageLoe) ? age.eq(ageGoe) : age.between(ageGoe, ageLoe);
+        }
+        if (ageGoe != null) {
+            return age.goe(ageGoe);
+        }
+        return ageLoe != null ? age.loe(ageLoe) : null;
+    }
+}
@@ -0,0 +1,250 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.QTeam;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.monitor.QueryMetrics;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 회원 검색 쿼리 템플릿
+ *
+ * 프로젝션과 조인은 상수로 한번만 만들고, 검색 조건 중 값이 있는 필드 조합마다
+ * JPQL 문자열을 한번만 렌더링해서 재사용한다. 값은 파라미터로 바인딩하므로 같은 조합이면
+ * JPQL 이 완전히 같고 하이버네이트 쿼리 플랜 캐시도 그대로 재사용된다.
+ */
+@Component
+public class MemberSearchQueryTemplates {
+
+    public static final QMemberTeamDto MEMBER_TEAM_DTO = new QMemberTeamDto(
+            QMember.member.id.as("memberId"),
+            QMember.member.username,
+            QMember.member.age,
+            QTeam.team.id.as("teamId"),
+            QTeam.team.name.as("teamName"));
+
+    static final Param<String> USERNAME = new Param<>(String.class, "username");
+    static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+    static final Param<String> USERNAME_CONTAINS = new Param<>(String.class, "usernameContains");
+    static final Param<String> USERNAME_STARTS_WITH = new Param<>(String.class, "usernameStartsWith");
+    @SuppressWarnings("rawtypes")
+    static final Param<Collection> MEMBER_IDS = new Param<>(Collection.class, "memberIds");
+    private static final char LIKE_ESCAPE = '!';
+
+    private static final int HAS_USERNAME = 1;
+    private static final int HAS_TEAM_NAME = 1 << 1;
+    private static final int HAS_AGE_GOE = 1 << 2;
+    private static final int HAS_AGE_LOE = 1 << 3;
+    private static final int HAS_USERNAME_CONTAINS = 1 << 4;
+    private static final int HAS_USERNAME_STARTS_WITH = 1 << 5;
+    private static final int HAS_MEMBER_IDS = 1 << 6;
+    //ageGoe == ageLoe : 값은 파라미터라 렌더링할 때 알 수 없으므로 별도 조합으로 만든다
+    private static final int HAS_AGE_EQ = 1 << 7;
+
+    private final EntityManager em;
+    private final boolean queryCache;
+    private final QueryMetrics metrics;
+    private final MemberUsernameIndex usernameIndex;
+    private final Map<Integer, Template> templates = new ConcurrentHashMap<>();
+
+    //app.query.search-cache : 검색 결과를 하이버네이트 쿼리 캐시(member-search 영역)에 저장
+    public MemberSearchQueryTemplates(EntityManager em,
+                                      @Value("${app.query.search-cache:false}") boolean queryCache,
+                                      QueryMetrics metrics,
+                                      MemberUsernameIndex usernameIndex) {
+        this.em = em;
+        this.queryCache = queryCache;
+        this.metrics = metrics;
+        this.usernameIndex = usernameIndex;
+    }
+
+    public List<MemberTeamDto> fetch(MemberSearchCondition condition) {
+        return fetch(condition, null, null);
+    }
+
+    public List<MemberTeamDto> fetch(MemberSearchCondition condition, Long offset, Integer limit) {
+        MemberSearchPredicate predicate = predicate(condition);
+        if (predicate.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Template template = template(predicate);
+        Query query = em.createQuery(template.contentJpql);
+        JPAUtil.setConstants(query, template.contentConstants, params(predicate));
+        if (offset != null) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        if (queryCache) {
+            QueryCaching.cacheable(query, QueryCaching.MEMBER_SEARCH_REGION);
+        }
+
+        return metrics.record("member.template.fetch", () -> {
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = query.getResultList();
+            long start = System.nanoTime();
+            List<MemberTeamDto> result = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                result.add(MEMBER_TEAM_DTO.newInstance(row));
+            }
+            metrics.recordTransform("member.template.fetch", System.nanoTime() - start);
+            return result;
+        });
+    }
+
+    public long count(MemberSearchCondition condition) {
+        MemberSearchPredicate predicate = predicate(condition);
+        if (predicate.isEmpty()) {
+            return 0;
+        }
+        Template template = template(predicate);
+        Query query = em.createQuery(template.countJpql);
+        JPAUtil.setConstants(query, template.countConstants, params(predicate));
+        if (queryCache) {
+            QueryCaching.cacheable(query, QueryCaching.MEMBER_SEARCH_REGION);
+        }
+        return metrics.record("member.template.count", () -> ((Number) query.getSingleResult()).longValue());
+    }
+
+    //회원명 부분 / 앞부분 일치는 인덱스가 있으면 회원 id 로 바꾼다
+    private MemberSearchPredicate predicate(MemberSearchCondition condition) {
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+        return usernameIndex != null ? usernameIndex.resolve(predicate) : predicate;
+    }
+
+    //조합별로 렌더링된 JPQL
+    String jpql(MemberSearchCondition condition) {
+        return template(MemberSearchPredicate.of(condition)).contentJpql;
+    }
+
+    String countJpql(MemberSearchCondition condition) {
+        return template(MemberSearchPredicate.of(condition)).countJpql;
+    }
+
+    int templateCount() {
+        return templates.size();
+    }
+
+    private Template template(MemberSearchPredicate predicate) {
+        return templates.computeIfAbsent(shape(predicate), MemberSearchQueryTemplates::render);
+    }
+
+    private static int shape(MemberSearchPredicate predicate) {
+        int shape = 0;
+        if (predicate.getUsername() != null) shape |= HAS_USERNAME;
+        if (predicate.getTeamName() != null) shape |= HAS_TEAM_NAME;
+        if (predicate.getAgeGoe() != null && predicate.getAgeGoe().equals(predicate.getAgeLoe())) {
+            shape |= HAS_AGE_EQ;
+        } else {
+            if (predicate.getAgeGoe() != null) shape |= HAS_AGE_GOE;
+            if (predicate.getAgeLoe() != null) shape |= HAS_AGE_LOE;
+        }
+        if (predicate.getUsernameContains() != null) shape |= HAS_USERNAME_CONTAINS;
+        if (predicate.getUsernameStartsWith() != null) shape |= HAS_USERNAME_STARTS_WITH;
+        if (predicate.getMemberIds() != null) shape |= HAS_MEMBER_IDS;
+        return shape;
+    }
+
+    private static Map<ParamExpression<?>, Object> params(MemberSearchPredicate predicate) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>(8);
+        if (predicate.getUsername() != null) params.put(USERNAME, predicate.getUsername());
+        if (predicate.getTeamName() != null) params.put(TEAM_NAME, predicate.getTeamName());
+        if (predicate.getAgeGoe() != null) params.put(AGE_GOE, predicate.getAgeGoe());
+        if (predicate.getAgeLoe() != null) params.put(AGE_LOE, predicate.getAgeLoe());
+        if (predicate.getUsernameContains() != null) params.put(USERNAME_CONTAINS, "%" + escapeLike(predicate.getUsernameContains()) + "%");
+        if (predicate.getUsernameStartsWith() != null) params.put(USERNAME_STARTS_WITH, escapeLike(predicate.getUsernameStartsWith()) + "%");
+        if (predicate.getMemberIds() != null) params.put(MEMBER_IDS, predicate.getMemberIds());
+        return params;
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static Template render(int shape) {
+        JPAQuery<MemberTeamDto> skeleton = new JPAQuery<Void>()
+                .select(MEMBER_TEAM_DTO)
+                .from(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team)
+                .where(
+                        (shape & HAS_USERNAME) != 0 ? QMember.member.username.eq(USERNAME) : null,
+                        (shape & HAS_USERNAME_STARTS_WITH) != 0 ? QMember.member.username.like(USERNAME_STARTS_WITH, LIKE_ESCAPE) : null,
+                        (shape & HAS_USERNAME_CONTAINS) != 0 ? QMember.member.username.like(USERNAME_CONTAINS, LIKE_ESCAPE) : null,
+                        (shape & HAS_MEMBER_IDS) != 0 ? Expressions.booleanTemplate("{0} in {1}", QMember.member.id, MEMBER_IDS) : null,
+                        (shape & HAS_TEAM_NAME) != 0 ? QTeam.team.name.eq(TEAM_NAME) : null,
+                        age(shape)
+                );
+
+        JPQLSerializer content = new JPQLSerializer(HQLTemplates.DEFAULT);
+        content.serialize(skeleton.getMetadata(), false, null);
+        //count 는 팀 조건이 없으면 team 조인을 빼고 member.id 를 센다
+        JPQLSerializer count = new JPQLSerializer(HQLTemplates.DEFAULT);
+        count.serialize(CountQueries.countMetadata(skeleton.getMetadata(), QMember.member.id), false, null);
+
+        return new Template(content.toString(), content.getConstantToLabel(),
+                count.toString(), count.getConstantToLabel());
+    }
+
+    //MemberSearchPredicate 와 같은 규칙 : 나이 범위가 같으면 eq , 모두 있으면 between 한번으로
+    private static BooleanExpression age(int shape) {
+        if ((shape & HAS_AGE_EQ) != 0) {
+            return QMember.member.age.eq(AGE_GOE);
+        }
+        boolean goe = (shape & HAS_AGE_GOE) != 0;
+        boolean loe = (shape & HAS_AGE_LOE) != 0;
+        if (goe && loe) {
+            return QMember.member.age.between(AGE_GOE, AGE_LOE);
+        }
+        if (goe) {
+            return QMember.member.age.goe(AGE_GOE);
+        }
+        return loe ? QMember.member.age.loe(AGE_LOE) : null;
+    }
+
+    private static class Template {
+        private final String contentJpql;
+        private final Map<Object, String> contentConstants;
+        private final String countJpql;
+        private final Map<Object, String> countConstants;
+
+        Template(String contentJpql, Map<Object, String> contentConstants,
+                 String countJpql, Map<Object, String> countConstants) {
+            this.contentJpql = contentJpql;
+            this.contentConstants = Collections.unmodifiableMap(new HashMap<>(contentConstants));
+            this.countJpql = countJpql;
+            this.countConstants = Collections.unmodifiableMap(new HashMap<>(countConstants));
+        }
+    }
+}
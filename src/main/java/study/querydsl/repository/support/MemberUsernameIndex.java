@@ -0,0 +1,119 @@
+package study.querydsl.repository.support;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.QMember;
+import study.querydsl.event.TableModifiedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * 회원명 부분 / 앞부분 일치 검색 인덱스 (app.username-index.enabled=true)
+ *
+ * like '%x%' 는 username 인덱스를 쓰지 못하고 전체 회원을 읽는다.
+ * 회원 id + 회원명을 메모리({@link UsernameNgrams})에 올려두고 조건을 만족하는 회원 id 를 먼저 찾아서
+ * member.id in (...) 으로 조회하게 한다 (PK 조회).
+ *
+ * 아래 경우는 그대로 like 로 조회한다
+ *  - 인덱스가 꺼져 있거나 member 테이블 변경 후 다시 적재하기 전 ({@link ReloadingSnapshot})
+ *  - 같은 트랜잭션에 flush 되지 않은 변경이 있을 때
+ *  - 찾은 회원이 app.username-index.max-ids 건을 넘을 때 (in 절이 너무 길어진다)
+ */
+@Component
+public class MemberUsernameIndex {
+
+    private final boolean enabled;
+    private final int maxIds;
+    private final int fetchSize;
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ReloadingSnapshot<UsernameNgrams> ngrams;
+
+    public MemberUsernameIndex(@Value("${app.username-index.enabled:false}") boolean enabled,
+                               @Value("${app.username-index.max-ids:1000}") int maxIds,
+                               @Value("${app.username-index.refresh-delay-millis:200}") long refreshDelayMillis,
+                               @Value("${app.username-index.fetch-size:1000}") int fetchSize,
+                               EntityManager em, PlatformTransactionManager transactionManager,
+                               @Qualifier("readModelScheduler") TaskScheduler scheduler) {
+        this.enabled = enabled;
+        this.maxIds = maxIds;
+        this.fetchSize = fetchSize;
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.ngrams = new ReloadingSnapshot<>("member username index", Collections.singleton("member"),
+                this::load, scheduler, refreshDelayMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    //회원명 조건을 회원 id 로 바꾼 조건 , 바꿀 수 없으면 그대로 반환
+    public MemberSearchPredicate resolve(MemberSearchPredicate predicate) {
+        if (!enabled || !predicate.hasUsernameMatch()) {
+            return predicate;
+        }
+        UsernameNgrams current = ngrams.current();
+        if (current == null || UnflushedChanges.exist(em)) {
+            return predicate;
+        }
+        long[] ids = current.find(predicate.getUsernameStartsWith(), predicate.getUsernameContains(), maxIds);
+        if (ids == null) {
+            return predicate;
+        }
+        //빈 목록이면 isEmpty() -> DB 조회 없이 빈 결과
+        List<Long> memberIds = LongStream.of(ids).boxed().collect(Collectors.toList());
+        return predicate.withMemberIds(memberIds);
+    }
+
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        if (enabled) {
+            ngrams.onTableModified(event);
+        }
+    }
+
+    public void reload() {
+        ngrams.reload();
+    }
+
+    private UsernameNgrams load() {
+        return transactionTemplate.execute(status -> {
+            List<String> usernames = new ArrayList<>();
+            List<Long> memberIds = new ArrayList<>();
+            try (CloseableIterator<Tuple> iterator = queryFactory
+                    .select(QMember.member.id, QMember.member.username)
+                    .from(QMember.member)
+                    .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                    .iterate()) {
+                while (iterator.hasNext()) {
+                    Tuple row = iterator.next();
+                    memberIds.add(row.get(QMember.member.id));
+                    usernames.add(row.get(QMember.member.username));
+                }
+            }
+            return UsernameNgrams.build(usernames, memberIds);
+        });
+    }
+}
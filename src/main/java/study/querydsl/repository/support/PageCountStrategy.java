@@ -0,0 +1,17 @@
+package study.querydsl.repository.support;
+
+//페이징 전체 건수를 구하는 방법
+public enum PageCountStrategy {
+
+    //fetchResults() : 컨텐츠 쿼리 + count 쿼리 항상 2번
+    FETCH_RESULTS,
+
+    //PageableExecutionUtils : 필요할 때만 count 쿼리 실행
+    LAZY_COUNT,
+
+    //count(*) over() : 컨텐츠와 전체 건수를 한번에 조회
+    WINDOW,
+
+    //page size + 1 건 조회 : 다음 페이지가 없으면 count 생략 , 있으면 캐시된 count 재사용
+    LOOK_AHEAD
+}
@@ -0,0 +1,33 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.Query;
+
+/**
+ * 하이버네이트 쿼리 캐시 힌트
+ *
+ * 쿼리 단위로 선택해서 사용한다. 결과는 region 에 저장되고, 조회한 테이블이 변경되면
+ * (엔티티 저장, 벌크 연산 모두) 하이버네이트가 자동으로 무효화한다.
+ */
+public final class QueryCaching {
+
+    public static final String MEMBER_SEARCH_REGION = "member-search";
+
+    private QueryCaching() {
+    }
+
+    public static <T> JPAQuery<T> cacheable(JPAQuery<T> query) {
+        return query.setHint(QueryHints.HINT_CACHEABLE, true);
+    }
+
+    public static <T> JPAQuery<T> cacheable(JPAQuery<T> query, String region) {
+        return cacheable(query).setHint(QueryHints.HINT_CACHE_REGION, region);
+    }
+
+    public static Query cacheable(Query query, String region) {
+        return query.setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, region);
+    }
+}
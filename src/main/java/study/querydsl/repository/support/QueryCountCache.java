@@ -0,0 +1,141 @@
+package study.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.querydsl.event.TableModifiedEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 페이징 count 쿼리 결과 캐시
+ *
+ * 같은 검색 조건의 전체 건수는 요청마다 거의 변하지 않으므로 TTL 동안 재사용한다.
+ * 최대 개수를 넘으면 가장 오래 사용하지 않은 항목부터 제거하고(LRU),
+ * 테이블이 변경되면({@link TableModifiedEvent}) 전체를 무효화한다.
+ */
+@Component
+public class QueryCountCache {
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LinkedHashMap<Object, Entry> entries;
+
+    //무효화 이전에 시작한 count 결과가 다시 저장되지 않도록 세대값을 사용한다
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public QueryCountCache(@Value("${app.query.count-cache.ttl-seconds:30}") long ttlSeconds,
+                           @Value("${app.query.count-cache.max-size:1000}") int maxSize) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > QueryCountCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 캐시 키 생성. 빈 문자열은 조건이 없는 것과 같으므로 null 로 정규화한다.
+     */
+    public static Object key(String queryName, Object... parts) {
+        List<Object> key = new ArrayList<>(parts.length + 1);
+        key.add(queryName);
+        for (Object part : parts) {
+            key.add(part instanceof String && !StringUtils.hasText((String) part) ? null : part);
+        }
+        return key;
+    }
+
+    public long get(Object key, LongSupplier countQuery) {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return entry.count;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            startGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        //DB 조회는 락 밖에서 실행
+        long count = countQuery.getAsLong();
+
+        synchronized (this) {
+            if (generation == startGeneration) {
+                entries.put(key, new Entry(count, System.nanoTime() + ttlNanos));
+            }
+        }
+        return count;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        if (!entries.isEmpty()) {
+            entries.clear();
+            invalidations.incrementAndGet();
+        }
+    }
+
+    //변경 즉시 무효화하고, 트랜잭션이 끝날 때(커밋/롤백) 한번 더 무효화한다.
+    //커밋 전에 다른 요청이 이전 값으로 다시 채워 넣은 경우를 정리하기 위함
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(QueryCountCache.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    public synchronized Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) entries.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long expiresAt;
+
+        Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package study.querydsl.repository.support;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
@@ -14,11 +17,21 @@ import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
  *
@@ -28,10 +41,16 @@ org.springframework.data.jpa.repository.support.QuerydslRepositorySupport
  */
 @Repository
 public abstract class Querydsl4RepositorySupport {
+	private static final int DEFAULT_MAX_WAITING = 4;
 	private final Class domainClass;
 	private Querydsl querydsl;
 	private EntityManager entityManager;
 	private JPAQueryFactory queryFactory;
+	private TransactionTemplate readOnlyTransactionTemplate;
+	private Executor countQueryExecutor;
+	private Semaphore waitingCallers = new Semaphore(DEFAULT_MAX_WAITING);
+	private QueryCountCache countCache;
+	private Path<?> idPath;
 	public Querydsl4RepositorySupport(Class<?> domainClass) {
 		Assert.notNull(domainClass, "Domain class must not be null!");
 		this.domainClass = domainClass;
@@ -47,6 +66,28 @@ public abstract class Querydsl4RepositorySupport {
 		this.querydsl = new Querydsl(entityManager, new
 				PathBuilder<>(path.getType(), path.getMetadata()));
 		this.queryFactory = new JPAQueryFactory(entityManager);
+		this.idPath = new PathBuilder<>(path.getType(), path.getMetadata())
+				.get(entityInformation.getIdAttribute().getName());
+	}
+	@Autowired
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.readOnlyTransactionTemplate = template;
+	}
+	@Autowired(required = false)
+	public void setCountQueryExecutor(@Qualifier("countQueryExecutor") Executor countQueryExecutor) {
+		this.countQueryExecutor = countQueryExecutor;
+	}
+	@Autowired
+	public void setParallelCountMaxWaiting(
+			@Value("${app.query.count-executor.max-waiting:" + DEFAULT_MAX_WAITING + "}") int maxWaiting) {
+		this.waitingCallers = new Semaphore(maxWaiting);
+	}
+	@Autowired(required = false)
+	public void setQueryCountCache(QueryCountCache countCache) {
+		this.countCache = countCache;
 	}
 	@PostConstruct
 	public void validate() {
@@ -69,14 +110,40 @@ public abstract class Querydsl4RepositorySupport {
 	protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
 		return getQueryFactory().selectFrom(from);
 	}
+	/**
+	 * 읽기 전용 엔티티 조회 (스냅샷 없음 , flush mode COMMIT)
+	 */
+	protected <T> JPAQuery<T> selectFromReadOnly(EntityPath<T> from) {
+		return ReadOnlyQuery.readOnly(selectFrom(from));
+	}
+	protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+		return ReadOnlyQuery.readOnly(query);
+	}
 	protected <T> Page<T> applyPagination(Pageable pageable,
 										  Function<JPAQueryFactory, JPAQuery> contentQuery) {
 		JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
 		List<T> content = getQuerydsl().applyPagination(pageable,
 				jpaQuery).fetch();
 		return PageableExecutionUtils.getPage(content, pageable,
-				jpaQuery::fetchCount);
+				countOf(jpaQuery));
+	}
+	/**
+	 * 컨텐츠 쿼리의 전체 건수. 사용하지 않는 to-one left join 은 제거하고 id 를 센다.
+	 * group by 쿼리는 그룹 수를 세야 하므로 기존처럼 fetchCount 를 사용한다.
+	 */
+	protected LongSupplier countOf(JPAQuery<?> contentQuery) {
+		if (!contentQuery.getMetadata().getGroupBy().isEmpty()) {
+			return contentQuery::fetchCount;
+		}
+		return countQueryOf(contentQuery)::fetchOne;
 	}
+	/**
+	 * 컨텐츠 쿼리에서 count 쿼리를 만든다. group by 쿼리는 지원하지 않는다. ({@link #countOf} 사용)
+	 */
+	protected JPAQuery<Long> countQueryOf(JPAQuery<?> contentQuery) {
+		return CountQueries.countQuery(entityManager, contentQuery, idPath);
+	}
+	//직접 넘긴 count 쿼리는 그대로 실행한다
 	protected <T> Page<T> applyPagination(Pageable pageable,
 										  Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
 			JPAQuery> countQuery) {
@@ -87,4 +154,87 @@ public abstract class Querydsl4RepositorySupport {
 		return PageableExecutionUtils.getPage(content, pageable,
 				countResult::fetchCount);
 	}
+	/**
+	 * count 결과를 countCacheKey 로 {@link QueryCountCache} 에 캐시한다.
+	 */
+	protected <T> Page<T> applyPagination(Pageable pageable, Object countCacheKey,
+										  Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+			JPAQuery> countQuery) {
+		JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+		List<T> content = getQuerydsl().applyPagination(pageable,
+				jpaContentQuery).fetch();
+		JPAQuery countResult = countQuery.apply(getQueryFactory());
+		if (countCache == null) {
+			return PageableExecutionUtils.getPage(content, pageable,
+					countResult::fetchCount);
+		}
+		return PageableExecutionUtils.getPage(content, pageable,
+				() -> countCache.get(countCacheKey, countResult::fetchCount));
+	}
+	/**
+	 * count 쿼리를 별도 스레드(별도 커넥션, 읽기 전용 트랜잭션)에서 컨텐츠 쿼리와 동시에 실행한다.
+	 * count 는 커밋된 데이터만 보므로, 쓰기 트랜잭션 안에서 호출하면 방금 저장한 데이터까지 세도록
+	 * 같은 스레드에서 순차 실행한다. (SearchCoalescer 와 같은 기준)
+	 *
+	 * 호출한 스레드는 커넥션을 잡은 채로 count 결과를 기다리고 count 는 같은 풀에서 커넥션을 하나 더 쓴다.
+	 * 기다리는 스레드가 풀의 커넥션을 모두 잡으면 count 가 커넥션을 얻지 못해 connection-timeout 까지 멈추므로,
+	 * 동시에 기다리는 호출 수를 app.query.count-executor.max-waiting 으로 제한한다 (커넥션 풀 크기보다 작게 설정).
+	 * 한도를 넘거나 풀이 포화 상태면 기존처럼 같은 스레드에서 순차 실행한다.
+	 *
+	 * count 가 필요 없으면 작업을 취소한다. 아직 시작하지 않은 작업만 실행되지 않고,
+	 * 이미 실행 중인 count 는 끝까지 실행된 뒤 결과가 버려진다.
+	 */
+	protected <T> Page<T> applyPaginationWithParallelCount(Pageable pageable,
+										  Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+			JPAQuery> countQuery) {
+		if (inWriteTransaction() || !waitingCallers.tryAcquire()) {
+			return applyPagination(pageable, contentQuery, countQuery);
+		}
+		try {
+			CompletableFuture<Long> total = submitCountQuery(countQuery);
+			if (total == null) {
+				return applyPagination(pageable, contentQuery, countQuery);
+			}
+			List<T> content;
+			try {
+				JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+				content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
+			} catch (RuntimeException e) {
+				total.cancel(false);
+				throw e;
+			}
+			Page<T> page = PageableExecutionUtils.getPage(content, pageable,
+					() -> joinCount(total));
+			total.cancel(false);
+			return page;
+		} finally {
+			waitingCallers.release();
+		}
+	}
+	private static boolean inWriteTransaction() {
+		return TransactionSynchronizationManager.isActualTransactionActive()
+				&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+	private CompletableFuture<Long> submitCountQuery(Function<JPAQueryFactory, JPAQuery> countQuery) {
+		if (countQueryExecutor == null) {
+			return null;
+		}
+		try {
+			return CompletableFuture.supplyAsync(() -> readOnlyTransactionTemplate.execute(status ->
+					countQuery.apply(getQueryFactory()).fetchCount()), countQueryExecutor);
+		} catch (RejectedExecutionException e) {
+			//풀이 포화 상태면 기존처럼 같은 스레드에서 순차 실행
+			return null;
+		}
+	}
+	private long joinCount(CompletableFuture<Long> total) {
+		try {
+			return total.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.FlushModeType;
+
+/**
+ * 조회 전용 쿼리 힌트
+ *
+ * 엔티티를 읽기 전용으로 로딩해서 변경 감지용 스냅샷을 만들지 않고, 쿼리 전에 자동 flush 하지 않는다.
+ * 읽기 전용으로 로딩한 엔티티는 값을 바꿔도 DB 에 반영되지 않는다.
+ */
+public final class ReadOnlyQuery {
+
+    private ReadOnlyQuery() {
+    }
+
+    public static <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return query.setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FLUSH_MODE, FlushModeType.COMMIT);
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.event.TableModifiedEvent;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * DB 에서 통째로 적재하는 메모리 스냅샷 (검색 인덱스용)
+ *
+ * 원본 테이블이 변경되면({@link TableModifiedEvent}) 즉시 stale 로 표시해서 호출한 쪽이 DB 조회로 대체하게 하고,
+ * 트랜잭션이 끝난 뒤 delayMillis 동안 변경을 모아서 다시 적재한다.
+ * 적재 중에 변경이 있으면 적재 결과를 믿을 수 없으므로 한번 더 적재한다.
+ */
+@Slf4j
+public class ReloadingSnapshot<T> {
+
+    private final String name;
+    private final Set<String> tables;
+    private final Supplier<T> loader;
+    private final TaskScheduler scheduler;
+    private final long delayMillis;
+
+    private volatile T value;
+    private volatile boolean fresh;
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+    private final AtomicLong version = new AtomicLong();
+
+    public ReloadingSnapshot(String name, Set<String> tables, Supplier<T> loader,
+                             TaskScheduler scheduler, long delayMillis) {
+        this.name = name;
+        this.tables = tables;
+        this.loader = loader;
+        this.scheduler = scheduler;
+        this.delayMillis = delayMillis;
+    }
+
+    //원본과 같은 상태의 스냅샷 , 변경 후 다시 적재하기 전이면 null
+    public T current() {
+        return fresh ? value : null;
+    }
+
+    //마지막으로 적재한 스냅샷 (적재 전이면 null)
+    public T latest() {
+        return value;
+    }
+
+    public void onTableModified(TableModifiedEvent event) {
+        if (!tables.contains(event.getTable())) {
+            return;
+        }
+        markStale();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            scheduleReload();
+            return;
+        }
+        //커밋(또는 롤백) 후 다시 적재 : 트랜잭션마다 한번만 등록
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReloadingSnapshot.this);
+                    markStale();
+                    scheduleReload();
+                }
+            });
+        }
+    }
+
+    public void reload() {
+        long startVersion = version.get();
+        long start = System.nanoTime();
+        T loaded = loader.get();
+        synchronized (this) {
+            value = loaded;
+            if (version.get() != startVersion) {
+                scheduleReload();
+                return;
+            }
+            fresh = true;
+        }
+        log.info("{} loaded in {}ms", name, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private synchronized void markStale() {
+        fresh = false;
+        version.incrementAndGet();
+    }
+
+    private void scheduleReload() {
+        if (!reloadScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            reloadScheduled.set(false);
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.warn(name + " reload failed", e);
+                scheduleReload();
+            }
+        }, new Date(System.currentTimeMillis() + delayMillis));
+    }
+}
@@ -0,0 +1,251 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.event.TableModifiedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 같은 검색 조건의 동시 조회를 한번의 DB 조회로 합친다 (single-flight)
+ *
+ * 한 화면의 여러 위젯이 같은 검색을 동시에 요청하면 먼저 온 요청만 조회하고 나머지는 그 결과를 기다려서 받는다.
+ * 결과는 app.query.search-coalesce.ttl-millis 동안 재사용하고 테이블이 변경되면({@link TableModifiedEvent}) 무효화한다.
+ * 저장하는 결과는 전체 row 수(app.query.search-coalesce.max-rows)로 제한하고 , 넘으면 오래된 결과부터 버린다.
+ * 만료된 결과는 저장할 때마다 정리한다. (TTL 이 모두 같으므로 저장 순서가 곧 만료 순서)
+ * 기본은 꺼져 있고 prod , perf 프로파일에서 켠다 (app.query.search-coalesce.enabled)
+ *
+ *  - 조회는 읽기 전용 트랜잭션에서 실행한다 (호출한 쪽에 트랜잭션이 없으면 먼저 온 요청만 트랜잭션을 연다)
+ *  - 쓰기 트랜잭션 안에서 호출하면 자기 변경이 보여야 하므로 합치지 않고 바로 조회한다
+ *  - 호출마다 결과 목록과 DTO 를 복사해서 반환한다 (한 호출이 DTO 를 바꿔도 다른 호출과 저장된 결과는 그대로)
+ *
+ * 지표 : querydsl.query.coalesce{query, result=executed|coalesced|cached|bypass} , /stats/search-coalescer
+ */
+@Component
+public class SearchCoalescer {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final long maxRows;
+    private final MeterRegistry registry;
+    private final TransactionOperations readOnly;
+
+    private final ConcurrentMap<Object, CompletableFuture<List<?>>> inFlight = new ConcurrentHashMap<>();
+    //저장 순서
+    private final LinkedHashMap<Object, Entry> results = new LinkedHashMap<>();
+    private long cachedRows;
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    //무효화 이전에 시작한 조회 결과가 다시 저장되지 않도록 세대값을 사용한다 (QueryCountCache 와 같은 방식)
+    private long generation;
+
+    @Autowired
+    public SearchCoalescer(@Value("${app.query.search-coalesce.enabled:false}") boolean enabled,
+                           @Value("${app.query.search-coalesce.ttl-millis:1000}") long ttlMillis,
+                           @Value("${app.query.search-coalesce.max-rows:100000}") long maxRows,
+                           MeterRegistry registry, PlatformTransactionManager transactionManager) {
+        this(enabled, ttlMillis, maxRows, registry, readOnlyTemplate(transactionManager));
+    }
+
+    SearchCoalescer(boolean enabled, long ttlMillis, long maxRows, MeterRegistry registry, TransactionOperations readOnly) {
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxRows = maxRows;
+        this.registry = registry;
+        this.readOnly = readOnly;
+    }
+
+    private static TransactionTemplate readOnlyTemplate(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    /**
+     * @param name  쿼리 이름 (지표 태그)
+     * @param key    검색 조건 키 ({@link MemberSearchPredicate#key} 로 만든다)
+     * @param query  실제 조회
+     * @param copier 결과 한 건 복사 (호출마다 새 DTO 를 넘긴다)
+     */
+    public <T> List<T> search(String name, Object key, Supplier<List<T>> query, UnaryOperator<T> copier) {
+        if (!enabled || inWriteTransaction()) {
+            count(name, "bypass");
+            return readOnly.execute(status -> query.get());
+        }
+
+        long startGeneration;
+        CompletableFuture<List<?>> future;
+        CompletableFuture<List<?>> running;
+        synchronized (this) {
+            Entry entry = results.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                count(name, "cached");
+                return copy(entry.result, copier);
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            startGeneration = generation;
+            future = new CompletableFuture<>();
+            running = inFlight.putIfAbsent(key, future);
+        }
+
+        if (running != null) {
+            count(name, "coalesced");
+            return copy(await(running), copier);
+        }
+
+        count(name, "executed");
+        try {
+            List<T> result = Collections.unmodifiableList(new ArrayList<>(readOnly.execute(status -> query.get())));
+            synchronized (this) {
+                if (generation == startGeneration && ttlNanos > 0) {
+                    put(key, result);
+                }
+            }
+            future.complete(result);
+            return copy(result, copier);
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    //조회 중인 요청은 기다리던 호출에만 결과를 넘기고 , 이후 호출은 새로 조회한다
+    public synchronized void invalidateAll() {
+        generation++;
+        results.clear();
+        cachedRows = 0;
+        inFlight.clear();
+    }
+
+    //변경 즉시 무효화하고 트랜잭션이 끝날 때 한번 더 무효화한다 (커밋 전에 이전 값으로 다시 채워진 경우)
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SearchCoalescer.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    //쿼리별 결과 건수 (executed , coalesced , cached , bypass)
+    public Map<String, Map<String, Long>> stats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        counters.forEach((id, counter) -> {
+            int separator = id.lastIndexOf(' ');
+            stats.computeIfAbsent(id.substring(0, separator), name -> new LinkedHashMap<>())
+                    .put(id.substring(separator + 1), (long) counter.count());
+        });
+        return stats;
+    }
+
+    //저장된 결과 수 , row 수
+    synchronized int cachedResults() {
+        return results.size();
+    }
+
+    synchronized long cachedRows() {
+        return cachedRows;
+    }
+
+    //synchronized 안에서 호출
+    private void put(Object key, List<?> result) {
+        if (result.size() > maxRows) {
+            return;//한 결과가 제한보다 크면 저장하지 않는다
+        }
+        remove(key);
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = results.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (eldest.expiresAt - now > 0 && cachedRows + result.size() <= maxRows) {
+                break;
+            }
+            iterator.remove();//만료되었거나 row 수 제한을 넘는 가장 오래된 결과
+            cachedRows -= eldest.result.size();
+        }
+        results.put(key, new Entry(result, now + ttlNanos));
+        cachedRows += result.size();
+    }
+
+    private void remove(Object key) {
+        Entry removed = results.remove(key);
+        if (removed != null) {
+            cachedRows -= removed.result.size();
+        }
+    }
+
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void count(String name, String result) {
+        counters.computeIfAbsent(name + " " + result, id -> Counter.builder("querydsl.query.coalesce")
+                .tag("query", name)
+                .tag("result", result)
+                .register(registry))
+                .increment();
+    }
+
+    private static List<?> await(CompletableFuture<List<?>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> copy(List<?> result, UnaryOperator<T> copier) {
+        List<T> copied = new ArrayList<>(result.size());
+        for (Object row : result) {
+            copied.add(copier.apply((T) row));
+        }
+        return copied;
+    }
+
+    private static class Entry {
+        private final List<?> result;
+        private final long expiresAt;
+
+        Entry(List<?> result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.event.TableModifiedEvent;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 테이블이 변경되면 그 테이블에 매핑된 엔티티의 2차 캐시 영역을 비운다.
+ *
+ * JPQL 벌크 연산은 하이버네이트가 직접 무효화하지만 네이티브 SQL 이나 다른 경로의 변경은 알 수 없으므로
+ * SQL 단계에서 감지한 {@link TableModifiedEvent} 로 한번 더 정리한다. 트랜잭션 안이면 끝난 뒤에 한번만 비운다.
+ */
+@Component
+public class SecondLevelCacheEvictor {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public SecondLevelCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(event.getTable());
+            return;
+        }
+        PendingTables pending = (PendingTables) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingTables();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            PendingTables tables = pending;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SecondLevelCacheEvictor.this);
+                    tables.forEach(SecondLevelCacheEvictor.this::evict);
+                }
+            });
+        }
+        pending.add(event.getTable());
+    }
+
+    public void evict(String table) {
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            if (persister.canReadFromCache() && persister instanceof AbstractEntityPersister
+                    && table.equals(tableName((AbstractEntityPersister) persister))) {
+                sessionFactory.getCache().evictEntityData(persister.getEntityName());
+            }
+        }
+    }
+
+    private static String tableName(AbstractEntityPersister persister) {
+        String name = persister.getTableName();
+        return name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static class PendingTables extends HashSet<String> {
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+
+//읽기 모델 / 인덱스는 DB 에 반영된(커밋된) 변경만 알기 때문에 , 같은 트랜잭션에서 아직 flush 되지 않은 변경이 있으면 DB 를 조회해야 한다
+public final class UnflushedChanges {
+
+    private UnflushedChanges() {
+    }
+
+    //트랜잭션 밖이면 false
+    public static boolean exist(EntityManager em) {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && em.unwrap(Session.class).isDirty();
+    }
+}
@@ -0,0 +1,122 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 회원명 검색 인덱스 (불변 스냅샷)
+ *
+ *  - 앞부분 일치 : 회원명 정렬 배열에서 이진 탐색
+ *  - 부분 일치 : 3-gram -> 회원명 위치 목록. 검색어의 3-gram 중 목록이 가장 짧은 것만 후보로 보고 contains 로 확인한다
+ *    (검색어가 3글자 미만이면 메모리에서 전체 회원명을 확인)
+ * DB 의 like 와 같이 대소문자를 구분한다.
+ */
+class UsernameNgrams {
+
+    static final int GRAM = 3;
+
+    //회원명 순으로 정렬
+    private final String[] usernames;
+    private final long[] memberIds;
+    private final Map<String, int[]> positionsByGram;
+
+    private UsernameNgrams(String[] usernames, long[] memberIds, Map<String, int[]> positionsByGram) {
+        this.usernames = usernames;
+        this.memberIds = memberIds;
+        this.positionsByGram = positionsByGram;
+    }
+
+    static UsernameNgrams build(List<String> usernames, List<Long> memberIds) {
+        Integer[] order = new Integer[usernames.size()];
+        int size = 0;
+        for (int i = 0; i < usernames.size(); i++) {
+            if (usernames.get(i) != null) {
+                order[size++] = i;
+            }
+        }
+        Integer[] sorted = Arrays.copyOf(order, size);
+        Arrays.sort(sorted, (a, b) -> usernames.get(a).compareTo(usernames.get(b)));
+
+        String[] names = new String[size];
+        long[] ids = new long[size];
+        Map<String, List<Integer>> grams = new HashMap<>();
+        for (int position = 0; position < size; position++) {
+            names[position] = usernames.get(sorted[position]);
+            ids[position] = memberIds.get(sorted[position]);
+            String name = names[position];
+            for (int i = 0; i + GRAM <= name.length(); i++) {
+                List<Integer> positions = grams.computeIfAbsent(name.substring(i, i + GRAM), gram -> new ArrayList<>());
+                //같은 회원명 안에서 반복되는 gram 은 한번만
+                if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+                    positions.add(position);
+                }
+            }
+        }
+        Map<String, int[]> positionsByGram = new HashMap<>(grams.size() * 2);
+        grams.forEach((gram, positions) -> positionsByGram.put(gram, positions.stream().mapToInt(Integer::intValue).toArray()));
+        return new UsernameNgrams(names, ids, positionsByGram);
+    }
+
+    int size() {
+        return usernames.length;
+    }
+
+    /**
+     * 조건을 모두 만족하는 회원 id. limit 건을 넘으면 null (in 절보다 like 가 나은 경우)
+     * startsWith , contains 는 null 이면 조건 없음
+     */
+    long[] find(String startsWith, String contains, int limit) {
+        int from = 0;
+        int to = usernames.length;
+        int[] candidates = null;
+        if (startsWith != null) {
+            from = lowerBound(startsWith);
+            to = lowerBound(startsWith + Character.MAX_VALUE);
+        } else if (contains != null && contains.length() >= GRAM) {
+            candidates = shortestPostings(contains);
+            to = candidates.length;
+        }
+
+        long[] result = new long[Math.min(Math.max(0, to - from), limit + 1)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int position = candidates != null ? candidates[i] : i;
+            String name = usernames[position];
+            if (startsWith != null && !name.startsWith(startsWith)) continue;
+            if (contains != null && !name.contains(contains)) continue;
+            if (count == limit) {
+                return null;
+            }
+            result[count++] = memberIds[position];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int[] shortestPostings(String text) {
+        int[] shortest = null;
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            int[] positions = positionsByGram.get(text.substring(i, i + GRAM));
+            if (positions == null) {
+                return new int[0];
+            }
+            if (shortest == null || positions.length < shortest.length) {
+                shortest = positions;
+            }
+        }
+        return shortest;
+    }
+
+    //value 이상인 첫 위치
+    private int lowerBound(String value) {
+        int low = 0;
+        int high = usernames.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (usernames[mid].compareTo(value) < 0) low = mid + 1; else high = mid;
+        }
+        return low;
+    }
+}
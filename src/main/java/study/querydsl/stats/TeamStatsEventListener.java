@@ -0,0 +1,87 @@
+package study.querydsl.stats;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.Team;
+
+/**
+ * 회원 / 팀 엔티티의 insert , update , delete 를 {@link TeamStatsService} 에 변경분으로 전달한다.
+ * flush 시점에 호출되고 , 서비스는 커밋된 다음에 반영한다.
+ */
+class TeamStatsEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final TeamStatsService service;
+
+    TeamStatsEventListener(TeamStatsService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            service.memberChanged(null, null,
+                    teamId(value(event.getPersister(), event.getState(), "team")),
+                    (Integer) value(event.getPersister(), event.getState(), "age"));
+        } else if (event.getEntity() instanceof Team) {
+            service.teamChanged((Long) event.getId(), ((Team) event.getEntity()).getName());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            //merge 없이 update 된 detached 엔티티는 이전 값을 알 수 없다
+            if (event.getOldState() == null) {
+                service.markDirty();
+                return;
+            }
+            EntityPersister persister = event.getPersister();
+            service.memberChanged(
+                    teamId(value(persister, event.getOldState(), "team")),
+                    (Integer) value(persister, event.getOldState(), "age"),
+                    teamId(value(persister, event.getState(), "team")),
+                    (Integer) value(persister, event.getState(), "age"));
+        } else if (event.getEntity() instanceof Team) {
+            service.teamChanged((Long) event.getId(), ((Team) event.getEntity()).getName());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            service.memberChanged(
+                    teamId(value(event.getPersister(), event.getDeletedState(), "team")),
+                    (Integer) value(event.getPersister(), event.getDeletedState(), "age"),
+                    null, null);
+        } else if (event.getEntity() instanceof Team) {
+            service.teamChanged((Long) event.getId(), null);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private static Object value(EntityPersister persister, Object[] state, String property) {
+        return state[persister.getEntityMetamodel().getPropertyIndex(property)];
+    }
+
+    //팀 프록시는 초기화하지 않고 식별자만 꺼낸다
+    private static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+}
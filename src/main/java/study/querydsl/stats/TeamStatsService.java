@@ -0,0 +1,356 @@
+package study.querydsl.stats;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.QTeam;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.event.BulkTableModifiedEvent;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 팀별 회원 수 , 나이 합계 / 최소 / 최대를 메모리에 유지한다. (대시보드 조회는 DB 조회 없음)
+ *
+ * 엔티티 저장 / 팀 변경 / 삭제는 {@link TeamStatsEventListener} 가 변경분으로 전달하고 커밋된 다음에 반영한다.
+ * 벌크 연산으로 member , team 테이블이 변경되면({@link BulkTableModifiedEvent}) dirty 로 표시하고
+ * 스케줄러가 GROUP BY 로 다시 계산한다. 변경이 없어도 app.team-stats.reconcile-seconds 마다 다시 계산한다.
+ */
+@Slf4j
+@Component
+public class TeamStatsService {
+
+    static final String MEMBER_TABLE = "member";
+    static final String TEAM_TABLE = "team";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler scheduler;
+    private final long reconcileNanos;
+    private final long refreshMillis;
+
+    //팀 id -> 나이별 회원 수 (삭제 / 나이 변경에도 최소 , 최대를 정확히 유지)
+    private final Map<Long, TeamAges> teams = new HashMap<>();
+    private final Map<Long, String> teamNames = new HashMap<>();
+    private List<TeamStatsDto> snapshot;
+
+    //다시 계산하는 동안 반영된 변경이 있으면 결과를 믿을 수 없으므로 한번 더 계산한다
+    private long version;
+    //변경분을 기록할 때(flush , 커밋 전)와 다시 계산한 조회가 끝날 때마다 증가
+    private final AtomicLong generation = new AtomicLong();
+    //마지막으로 교체한 계산 결과의 조회가 끝난 시점. 이전에 기록된 변경분은 결과에 이미 포함되었을 수 있다
+    private long readGeneration;
+    private boolean dirty = true;
+    private long reconciledAt;
+
+    public TeamStatsService(EntityManagerFactory entityManagerFactory, EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("teamStatsScheduler") TaskScheduler scheduler,
+                            @Value("${app.team-stats.reconcile-seconds:300}") long reconcileSeconds,
+                            @Value("${app.team-stats.refresh-millis:1000}") long refreshMillis) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.scheduler = scheduler;
+        this.reconcileNanos = TimeUnit.SECONDS.toNanos(reconcileSeconds);
+        this.refreshMillis = refreshMillis;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        TeamStatsEventListener listener = new TeamStatsEventListener(this);
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+    }
+
+    //처음 한번 계산하고 , dirty 이면 app.team-stats.refresh-millis 안에 다시 계산한다
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reconcile();
+        scheduler.scheduleWithFixedDelay(this::reconcileIfNeeded, refreshMillis);
+    }
+
+    public List<TeamStatsDto> findAll() {
+        synchronized (this) {
+            if (snapshot == null) {
+                List<TeamStatsDto> result = new ArrayList<>(teams.size());
+                for (Map.Entry<Long, TeamAges> entry : teams.entrySet()) {
+                    result.add(entry.getValue().toDto(entry.getKey(), teamNames.get(entry.getKey())));
+                }
+                result.sort((a, b) -> String.valueOf(a.getTeamName()).compareTo(String.valueOf(b.getTeamName())));
+                snapshot = Collections.unmodifiableList(result);
+            }
+            return snapshot;
+        }
+    }
+
+    public Optional<TeamStatsDto> findByTeamName(String teamName) {
+        return findAll().stream().filter(stats -> Objects.equals(stats.getTeamName(), teamName)).findFirst();
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    public synchronized void markDirty() {
+        dirty = true;
+    }
+
+    //스케줄러에서 호출 : dirty 이거나 마지막 계산 후 reconcile-seconds 가 지났으면 다시 계산
+    public void reconcileIfNeeded() {
+        boolean needed;
+        synchronized (this) {
+            needed = dirty || System.nanoTime() - reconciledAt > reconcileNanos;
+        }
+        if (needed) {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("team stats reconciliation failed", e);
+            }
+        }
+    }
+
+    /**
+     * select team.id , member.age , count(member) from member join team group by team.id , member.age
+     * 결과로 메모리 통계를 교체한다.
+     */
+    public void reconcile() {
+        long startVersion;
+        synchronized (this) {
+            startVersion = version;
+            dirty = false;
+        }
+
+        Map<Long, TeamAges> loaded = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        transactionTemplate.execute(status -> {
+            List<Tuple> rows = queryFactory
+                    .select(QTeam.team.id, QMember.member.age, QMember.member.count())
+                    .from(QMember.member)
+                    .join(QMember.member.team, QTeam.team)
+                    .groupBy(QTeam.team.id, QMember.member.age)
+                    .fetch();
+            for (Tuple row : rows) {
+                loaded.computeIfAbsent(row.get(QTeam.team.id), id -> new TeamAges())
+                        .add(row.get(QMember.member.age), row.get(QMember.member.count()));
+            }
+            for (Tuple row : queryFactory.select(QTeam.team.id, QTeam.team.name).from(QTeam.team).fetch()) {
+                names.put(row.get(QTeam.team.id), row.get(QTeam.team.name));
+            }
+            return null;
+        });
+        long readEnd = generation.incrementAndGet();
+
+        synchronized (this) {
+            readGeneration = readEnd;
+            teams.clear();
+            teams.putAll(loaded);
+            teamNames.clear();
+            teamNames.putAll(names);
+            snapshot = null;
+            reconciledAt = System.nanoTime();
+            if (version != startVersion) {
+                dirty = true;
+            }
+        }
+        log.debug("team stats reconciled : {} teams", loaded.size());
+    }
+
+    //벌크 연산으로 회원 / 팀이 변경되면 변경된 행을 알 수 없으므로 다시 계산
+    //chunk 로 나눠서 실행 중이면 작업이 끝난 뒤 한번만 다시 계산한다
+    @EventListener
+    public void onBulkModified(BulkTableModifiedEvent event) {
+        if (event.isPending()) {
+            return;
+        }
+        if (event.getTables().contains(MEMBER_TABLE) || event.getTables().contains(TEAM_TABLE)) {
+            markDirty();
+        }
+    }
+
+    void memberChanged(Long fromTeam, Integer fromAge, Long toTeam, Integer toAge) {
+        MemberChange change = new MemberChange(fromTeam, fromAge, toTeam, toAge);
+        PendingChanges pending = pendingChanges();
+        if (pending == null) {
+            apply(generation.incrementAndGet(), Collections.singletonList(change), Collections.emptyMap());
+            return;
+        }
+        if (!change.isNoop()) {
+            pending.members.add(change);
+            pending.recordedAt = generation.incrementAndGet();
+        }
+    }
+
+    //name 이 null 이면 삭제된 팀
+    void teamChanged(Long teamId, String name) {
+        PendingChanges pending = pendingChanges();
+        if (pending == null) {
+            apply(generation.incrementAndGet(), Collections.emptyList(), Collections.singletonMap(teamId, name));
+            return;
+        }
+        pending.teams.put(teamId, name);
+        pending.recordedAt = generation.incrementAndGet();
+    }
+
+    /**
+     * recordedAt : 변경분을 마지막으로 기록한 시점 (DB 커밋보다 먼저)
+     * 마지막 계산의 조회가 끝나기 전에 기록되었으면 커밋이 조회보다 먼저였는지 알 수 없으므로
+     * 더하지 않고(두번 반영 방지) 다시 계산한다.
+     */
+    private synchronized void apply(long recordedAt, List<MemberChange> members, Map<Long, String> names) {
+        if (recordedAt < readGeneration) {
+            dirty = true;
+            return;
+        }
+        for (MemberChange change : members) {
+            if (change.fromTeam != null && change.fromAge != null) {
+                TeamAges ages = teams.get(change.fromTeam);
+                if (ages == null || !ages.remove(change.fromAge)) {
+                    dirty = true;//메모리 값과 맞지 않으면 다시 계산
+                } else if (ages.isEmpty()) {
+                    teams.remove(change.fromTeam);
+                }
+            }
+            if (change.toTeam != null && change.toAge != null) {
+                teams.computeIfAbsent(change.toTeam, id -> new TeamAges()).add(change.toAge, 1);
+            }
+        }
+        //팀 삭제는 소속 회원이 먼저 정리된 다음이므로 회원 변경분 뒤에 반영
+        for (Map.Entry<Long, String> entry : names.entrySet()) {
+            if (entry.getValue() == null) {
+                teamNames.remove(entry.getKey());
+                teams.remove(entry.getKey());
+            } else {
+                teamNames.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Long teamId : teams.keySet()) {
+            if (!teamNames.containsKey(teamId)) {
+                dirty = true;//이름을 모르는 팀 (엔티티 이벤트 없이 추가된 팀)
+                break;
+            }
+        }
+        version++;
+        snapshot = null;
+    }
+
+    //현재 트랜잭션의 변경분 (트랜잭션 밖이면 null)
+    private PendingChanges pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            PendingChanges created = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TeamStatsService.this);
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                        return;//롤백된 변경은 버린다
+                    }
+                    if (created.members.isEmpty() && created.teams.isEmpty()) {
+                        return;
+                    }
+                    apply(created.recordedAt, created.members, created.teams);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private static class PendingChanges {
+        private final List<MemberChange> members = new ArrayList<>();
+        private final Map<Long, String> teams = new HashMap<>();
+        private long recordedAt;
+    }
+
+    private static class MemberChange {
+        private final Long fromTeam;
+        private final Integer fromAge;
+        private final Long toTeam;
+        private final Integer toAge;
+
+        MemberChange(Long fromTeam, Integer fromAge, Long toTeam, Integer toAge) {
+            this.fromTeam = fromTeam;
+            this.fromAge = fromAge;
+            this.toTeam = toTeam;
+            this.toAge = toAge;
+        }
+
+        //username 만 바뀐 경우
+        boolean isNoop() {
+            return Objects.equals(fromTeam, toTeam) && Objects.equals(fromAge, toAge);
+        }
+    }
+
+    private static class TeamAges {
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+        private long count;
+        private long sum;
+
+        void add(int age, long members) {
+            ages.merge(age, members, Long::sum);
+            count += members;
+            sum += (long) age * members;
+        }
+
+        boolean remove(int age) {
+            Long members = ages.get(age);
+            if (members == null) {
+                return false;
+            }
+            if (members == 1) {
+                ages.remove(age);
+            } else {
+                ages.put(age, members - 1);
+            }
+            count--;
+            sum -= age;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        TeamStatsDto toDto(Long teamId, String teamName) {
+            return new TeamStatsDto(teamId, teamName, count, sum, ages.firstKey(), ages.lastKey());
+        }
+    }
+}
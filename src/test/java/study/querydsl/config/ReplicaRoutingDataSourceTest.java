@@ -0,0 +1,81 @@
+package study.querydsl.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//H2 메모리 DB 두개로 primary / replica 라우팅 확인
+class ReplicaRoutingDataSourceTest {
+
+    ReplicaRoutingDataSource routing;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readOnly;
+    TransactionTemplate readWrite;
+
+    @BeforeEach
+    public void before(){
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", h2("replica1"));
+        replicas.put("replica-2", h2("replica2"));
+        routing = new ReplicaRoutingDataSource(h2("primary"), replicas, null, 5);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void readOnlyGoesToReplicas(){
+        Assertions.assertThat(database(readWrite)).isEqualTo("PRIMARY");
+        //round-robin
+        Assertions.assertThat(database(readOnly)).isIn("REPLICA1", "REPLICA2");
+        Assertions.assertThat(database(readOnly)).isNotEqualTo(database(readOnly));
+    }
+
+    @Test
+    public void fallbackToPrimaryWhenReplicasAreDown(){
+        routing.markHealthy("replica-1", false);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertThat(database(readOnly)).isEqualTo("REPLICA2");
+        }
+
+        routing.markHealthy("replica-2", false);
+        Assertions.assertThat(database(readOnly)).isEqualTo("PRIMARY");
+
+        //헬스 체크로 다시 사용
+        routing.checkHealth();
+        Assertions.assertThat(routing.replicaHealth()).containsValues(true, true);
+        Assertions.assertThat(database(readOnly)).isIn("REPLICA1", "REPLICA2");
+    }
+
+    @Test
+    public void lagAboveLimitIsUnhealthy(){
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", h2("replica1"));
+        ReplicaRoutingDataSource lagging = new ReplicaRoutingDataSource(h2("primary"), replicas, "select 10", 5);
+
+        lagging.checkHealth();
+
+        Assertions.assertThat(lagging.replicaHealth()).containsEntry("replica-1", false);
+    }
+
+    private String database(TransactionTemplate transactionTemplate){
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("select database()", String.class));
+    }
+
+    private static DataSource h2(String name){
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
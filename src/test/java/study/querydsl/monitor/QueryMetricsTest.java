@@ -0,0 +1,53 @@
+package study.querydsl.monitor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+class QueryMetricsTest {
+
+    @Test
+    public void recordLatencyAndRows(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryMetrics metrics = new QueryMetrics(registry);
+
+        List<String> result = metrics.record("member.search", () -> Arrays.asList("a", "b", "c"));
+        metrics.record("member.search", () -> Arrays.asList("d"));
+        metrics.recordTransform("member.search", 1_000_000);
+
+        Assertions.assertThat(result).hasSize(3);
+        Assertions.assertThat(registry.get("querydsl.query").tag("query", "member.search").timer().count()).isEqualTo(2);
+
+        Map<String, Object> stats = metrics.snapshot().get("member.search");
+        Assertions.assertThat(stats.get("count")).isEqualTo(2L);
+        Assertions.assertThat(stats.get("rowsTotal")).isEqualTo(4L);
+        Assertions.assertThat(stats.get("statementsTotal")).isEqualTo(0L);
+        Assertions.assertThat((double) stats.get("transformMs")).isEqualTo(1.0);
+        Assertions.assertThat(stats).containsKeys("p50Ms", "p95Ms", "p99Ms");
+    }
+
+    @Test
+    public void recordFailure(){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryMetrics metrics = new QueryMetrics(registry);
+
+        metrics.record("member.search", () -> Arrays.asList("a"));
+        Assertions.assertThatThrownBy(() -> metrics.record("member.search", () -> {
+            throw new IllegalStateException("query timeout");
+        })).isInstanceOf(IllegalStateException.class);
+
+        //실패한 쿼리도 실행 시간과 예외 종류가 남아야 한다
+        Assertions.assertThat(registry.get("querydsl.query").tag("query", "member.search")
+                .tag("outcome", "ERROR").tag("exception", "IllegalStateException").timer().count()).isEqualTo(1);
+        Assertions.assertThat(registry.get("querydsl.query").tag("query", "member.search")
+                .tag("outcome", "SUCCESS").timer().count()).isEqualTo(1);
+
+        Map<String, Object> stats = metrics.snapshot().get("member.search");
+        Assertions.assertThat(stats.get("count")).isEqualTo(1L);
+        Assertions.assertThat(stats.get("errors")).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,42 @@
+package study.querydsl.monitor;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+@SpringBootTest
+@Transactional
+class SearchIndexReportTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    SearchIndexReport searchIndexReport;
+
+    @Test
+    public void allPredicatesCovered() throws Exception {
+        Assertions.assertThat(searchIndexReport.uncoveredPredicates()).isEmpty();
+    }
+
+    //H2 실행 계획에서 사용하는 인덱스 확인
+    @Test
+    public void explainPlan(){
+        Assertions.assertThat(explain("select * from member where username = 'member1'"))
+                .contains("IDX_MEMBER_USERNAME");
+        Assertions.assertThat(explain("select * from member where team_id = 1 and age between 10 and 20"))
+                .contains("IDX_MEMBER_TEAM_AGE");
+        Assertions.assertThat(explain("select * from member where age >= 10"))
+                .contains("IDX_MEMBER_AGE");
+        Assertions.assertThat(explain("select * from team where name = 'teamA'"))
+                .contains("IDX_TEAM_NAME");
+    }
+
+    private String explain(String sql){
+        return String.valueOf(em.createNativeQuery("explain " + sql).getSingleResult()).toUpperCase();
+    }
+}
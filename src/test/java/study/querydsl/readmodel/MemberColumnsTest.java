@@ -0,0 +1,103 @@
+package study.querydsl.readmodel;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.MemberSearchPredicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+class MemberColumnsTest {
+
+    @Test
+    public void matchesSameRowsAsFullScan(){
+        Random random = new Random(7);
+        List<MemberTeamDto> members = new ArrayList<>();
+        MemberColumns.Builder builder = new MemberColumns.Builder();
+        for (long id = 1; id <= 5000; id++) {
+            //팀 없는 회원 , 이름이 같은 팀(teamC 두개) , 중복 username 포함
+            int team = random.nextInt(5);
+            Long teamId = team == 0 ? null : (long) team;
+            String teamName = team == 0 ? null : team == 4 ? "teamC" : "team" + (char) ('A' + team - 1);
+            MemberTeamDto dto = new MemberTeamDto(id, "member" + random.nextInt(500), random.nextInt(100), teamId, teamName);
+            members.add(dto);
+            builder.add(dto.getMemberId(), dto.getUsername(), dto.getAge(), dto.getTeamId(), dto.getTeamName());
+        }
+        MemberColumns columns = builder.build();
+
+        String[] usernames = {null, "member7", "unknown"};
+        String[] teamNames = {null, "teamA", "teamC", "unknown"};
+        Integer[] ages = {null, 0, 20, 50, 99};
+        for (String username : usernames) {
+            for (String teamName : teamNames) {
+                for (Integer ageGoe : ages) {
+                    for (Integer ageLoe : ages) {
+                        MemberSearchCondition condition = new MemberSearchCondition();
+                        condition.setUsername(username);
+                        condition.setTeamName(teamName);
+                        condition.setAgeGoe(ageGoe);
+                        condition.setAgeLoe(ageLoe);
+
+                        int[] rows = columns.match(MemberSearchPredicate.of(condition));
+                        Assertions.assertThat(columns.toDtos(rows, 0, rows.length))
+                                .as(condition.toString())
+                                .usingFieldByFieldElementComparator()
+                                .containsExactlyElementsOf(fullScan(members, condition));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pageOfMatchedRows(){
+        MemberColumns.Builder builder = new MemberColumns.Builder();
+        for (long id = 1; id <= 10; id++) {
+            builder.add(id, "member" + id, (int) (20 - id), 1L, "teamA");
+        }
+        MemberColumns columns = builder.build();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(15);
+
+        //나이 인덱스로 찾아도 member_id 순서
+        int[] rows = columns.match(MemberSearchPredicate.of(condition));
+        Assertions.assertThat(rows).hasSize(6);
+        Assertions.assertThat(columns.toDtos(rows, 2, 4)).extracting("memberId").containsExactly(7L, 8L);
+    }
+
+    @Test
+    public void usernameContainsAndStartsWith(){
+        MemberColumns.Builder builder = new MemberColumns.Builder();
+        builder.add(1L, "member1", 10, 1L, "teamA");
+        builder.add(2L, "member12", 20, 1L, "teamA");
+        builder.add(3L, "xmember1", 30, null, null);
+        builder.add(4L, "member1", 40, 1L, "teamA");
+        MemberColumns columns = builder.build();
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("ber1");
+        contains.setAgeLoe(30);
+        int[] rows = columns.match(MemberSearchPredicate.of(contains));
+        Assertions.assertThat(columns.toDtos(rows, 0, rows.length)).extracting("memberId").containsExactly(1L, 2L, 3L);
+
+        MemberSearchCondition startsWith = new MemberSearchCondition();
+        startsWith.setUsernameStartsWith("member1");
+        startsWith.setUsernameContains("12");
+        rows = columns.match(MemberSearchPredicate.of(startsWith));
+        Assertions.assertThat(columns.toDtos(rows, 0, rows.length)).extracting("memberId").containsExactly(2L);
+    }
+
+    private static List<MemberTeamDto> fullScan(List<MemberTeamDto> members, MemberSearchCondition condition) {
+        return members.stream()
+                .filter(m -> condition.getUsername() == null || condition.getUsername().equals(m.getUsername()))
+                .filter(m -> condition.getTeamName() == null || Objects.equals(condition.getTeamName(), m.getTeamName()))
+                .filter(m -> condition.getAgeGoe() == null || m.getAge() >= condition.getAgeGoe())
+                .filter(m -> condition.getAgeLoe() == null || m.getAge() <= condition.getAgeLoe())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,166 @@
+package study.querydsl.readmodel;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.monitor.StatementStatistics;
+import study.querydsl.repository.MemberBulkRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+//읽기 모델은 커밋 직전에 반영되므로 @Transactional 없이 트랜잭션마다 커밋한다
+//벌크 연산 후 재생성은 테스트에서 직접 호출한다 (자동 재생성은 한 시간 뒤)
+@SpringBootTest(properties = {
+        "app.read-model.member-team.enabled=true",
+        "app.read-model.member-team.rebuild-delay-millis=3600000"})
+class MemberTeamReadModelTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberTeamReadModel readModel;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    TransactionTemplate tx;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        readModel.rebuild();
+        tx.execute(status -> {
+            Team teamA = new Team("viewTeamA");
+            Team teamB = new Team("viewTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("view1" , 10 , teamA));
+            em.persist(new Member("view2" , 20 , teamA));
+            em.persist(new Member("view3" , 30 , teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.team.id in (:ids)")
+                    .setParameter("ids", Arrays.asList(teamAId, teamBId)).executeUpdate();
+            em.createQuery("delete from Team t where t.id in (:ids)")
+                    .setParameter("ids", Arrays.asList(teamAId, teamBId)).executeUpdate();
+            return null;
+        });
+        readModel.rebuild();
+    }
+
+    @Test
+    public void searchWithoutJoin(){
+        Assertions.assertThat(readModel.isReadable()).isTrue();
+
+        StatementStatistics.start();
+        List<MemberTeamDto> result;
+        Map<String, Integer> statements;
+        try {
+            result = search("viewTeamA");
+        } finally {
+            statements = StatementStatistics.stop().getCounts();
+        }
+        Assertions.assertThat(result).extracting("username").containsExactlyInAnyOrder("view1" , "view2");
+        Assertions.assertThat(result).extracting("teamId").containsOnly(teamAId);
+        Assertions.assertThat(statements.keySet()).hasSize(1);
+        Assertions.assertThat(statements.keySet().iterator().next())
+                .contains("member_team_view")
+                .doesNotContain("join");
+    }
+
+    @Test
+    public void incrementalRefresh(){
+        //나이 변경 , 팀 변경 , 팀 이름 변경 , 삭제
+        tx.execute(status -> {
+            Member view1 = findMember("view1");
+            view1.setAge(11);
+            view1.setTeam(em.find(Team.class, teamBId));
+            em.find(Team.class, teamBId).setName("viewTeamB2");
+            em.remove(findMember("view2"));
+            return null;
+        });
+
+        Assertions.assertThat(search("viewTeamA")).isEmpty();
+        List<MemberTeamDto> teamB = search("viewTeamB2");
+        Assertions.assertThat(teamB).extracting("username").containsExactlyInAnyOrder("view1" , "view3");
+        Assertions.assertThat(teamB).filteredOn(dto -> dto.getUsername().equals("view1"))
+                .extracting("age").containsExactly(11);
+
+        //롤백된 변경은 반영하지 않는다
+        tx.execute(status -> {
+            findMember("view3").setAge(99);
+            status.setRollbackOnly();
+            return null;
+        });
+        Assertions.assertThat(search("viewTeamB2")).extracting("age").containsExactlyInAnyOrder(11 , 30);
+    }
+
+    @Test
+    public void bulkUpdateFallsBackToJoinUntilRebuilt(){
+        memberBulkRepository.updateInChunks(QMember.member.team.id.eq(teamAId),
+                update -> update.set(QMember.member.age, QMember.member.age.add(1)), p -> {});
+
+        //재생성 전까지는 조인 쿼리로 조회하므로 결과는 항상 최신
+        Assertions.assertThat(readModel.isReadable()).isFalse();
+        StatementStatistics.start();
+        List<MemberTeamDto> result;
+        Map<String, Integer> statements;
+        try {
+            result = search("viewTeamA");
+        } finally {
+            statements = StatementStatistics.stop().getCounts();
+        }
+        Assertions.assertThat(result).extracting("age").containsExactlyInAnyOrder(11 , 21);
+        Assertions.assertThat(statements.keySet()).allMatch(sql -> sql.contains("join") && !sql.contains("member_team_view"));
+
+        readModel.rebuild();
+        Assertions.assertThat(readModel.isReadable()).isTrue();
+        Assertions.assertThat(readModel.search(condition("viewTeamA"))).extracting("age").containsExactlyInAnyOrder(11 , 21);
+    }
+
+    private List<MemberTeamDto> search(String teamName) {
+        return memberRepository.search(condition(teamName));
+    }
+
+    private static MemberSearchCondition condition(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+
+    private Member findMember(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+}
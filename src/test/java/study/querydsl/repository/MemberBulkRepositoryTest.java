@@ -0,0 +1,158 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//chunk 마다 커밋되는지 확인하는 테스트는 @Transactional 없이 실행하고 직접 정리한다
+@SpringBootTest(properties = {"app.bulk.update-chunk-size=100", "app.bulk.pause-millis=20"})
+class MemberBulkRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    Long bulkTeamId;
+    Long fillerTeamId;
+
+    @AfterEach
+    public void after(){
+        if (bulkTeamId == null) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).execute(status -> {
+            em.createQuery("delete from Member m where m.team.id in (:ids)")
+                    .setParameter("ids", Arrays.asList(bulkTeamId, fillerTeamId)).executeUpdate();
+            em.createQuery("delete from Team t where t.id in (:ids)")
+                    .setParameter("ids", Arrays.asList(bulkTeamId, fillerTeamId)).executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    @Transactional
+    public void saveAll(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            members.add(new Member("member" + i , i , teamA));
+        }
+
+        int saved = memberBulkRepository.saveAll(members);
+
+        Assertions.assertThat(saved).isEqualTo(250);
+        //호출한 쪽이 관리하던 엔티티는 분리되지 않는다
+        Assertions.assertThat(em.contains(teamA)).isTrue();
+        Assertions.assertThat(em.contains(members.get(0))).isFalse();
+        Assertions.assertThat(memberRepository.count()).isEqualTo(250);
+        //flush , clear 후에도 연관관계가 저장되어 있어야 한다
+        Assertions.assertThat(memberRepository.findByUsername("member249").get(0).getTeam().getName()).isEqualTo("teamA");
+    }
+
+    @Test
+    public void updateAndDeleteInChunks(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        saveSparseMembers(tx);
+
+        List<MemberBulkRepository.Progress> progress = new ArrayList<>();
+        long start = System.nanoTime();
+        long updated = memberBulkRepository.updateInChunks(QMember.member.team.id.eq(bulkTeamId),
+                update -> update.set(QMember.member.age, QMember.member.age.add(100)), p -> {
+                    //chunk 마다 커밋되어 다른 트랜잭션에서 보인다
+                    Assertions.assertThat(countAgeGoe(tx, 100)).isEqualTo(p.getAffectedRows());
+                    progress.add(p);
+                });
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assertions.assertThat(updated).isEqualTo(250);
+        Assertions.assertThat(progress.get(progress.size() - 1).isDone()).isTrue();
+        Assertions.assertThat(progress.get(progress.size() - 1).getAffectedRows()).isEqualTo(250);
+        //다른 팀 회원만 있는 id 구간은 건너뛴다 (빈 chunk 없음)
+        long previous = 0;
+        for (MemberBulkRepository.Progress p : progress) {
+            Assertions.assertThat(p.getAffectedRows()).as(p.toString()).isGreaterThan(previous);
+            previous = p.getAffectedRows();
+        }
+        //chunk 사이에 app.bulk.pause-millis 만큼 쉰다
+        Assertions.assertThat(elapsedMillis).isGreaterThanOrEqualTo(progress.size() * 20L);
+
+        long deleted = memberBulkRepository.deleteInChunks(
+                QMember.member.team.id.eq(bulkTeamId).and(QMember.member.age.lt(110)), p -> {});
+
+        Assertions.assertThat(deleted).isEqualTo(50);
+        Assertions.assertThat(countAgeGoe(tx, 100)).isEqualTo(200);
+    }
+
+    @Test
+    public void inChunksInsideTransactionKeepsOtherEntities(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        saveSparseMembers(tx);
+
+        tx.execute(status -> {
+            Team team = em.find(Team.class, bulkTeamId);
+            Member loaded = memberRepository.findByUsername("bulk0").get(0);
+            Assertions.assertThat(loaded.getAge()).isEqualTo(0);
+
+            memberBulkRepository.updateInChunks(QMember.member.team.id.eq(bulkTeamId),
+                    update -> update.set(QMember.member.age, QMember.member.age.add(100)), p -> {});
+
+            //오래된 회원만 분리되고 팀은 그대로 관리된다
+            Assertions.assertThat(em.contains(team)).isTrue();
+            Assertions.assertThat(em.contains(loaded)).isFalse();
+            Assertions.assertThat(memberRepository.findByUsername("bulk0").get(0).getAge()).isEqualTo(100);
+            return null;
+        });
+    }
+
+    //bulkTeam 회원 사이에 다른 팀 회원을 끼워 넣어 id 를 띄엄띄엄하게 만든다
+    private void saveSparseMembers(TransactionTemplate tx) {
+        tx.execute(status -> {
+            Team bulkTeam = new Team("bulkTeam");
+            Team fillerTeam = new Team("bulkFiller");
+            em.persist(bulkTeam);
+            em.persist(fillerTeam);
+            for (int i = 0; i < 250; i++) {
+                if (i == 120) {
+                    for (int j = 0; j < 300; j++) {
+                        em.persist(new Member("filler" + j , 0 , fillerTeam));
+                    }
+                }
+                em.persist(new Member("bulk" + i , i % 50 , bulkTeam));
+            }
+            bulkTeamId = bulkTeam.getId();
+            fillerTeamId = fillerTeam.getId();
+            return null;
+        });
+    }
+
+    private long countAgeGoe(TransactionTemplate tx, int age) {
+        return tx.execute(status -> em.createQuery(
+                "select count(m) from Member m where m.team.id = :id and m.age >= :age", Long.class)
+                .setParameter("id", bulkTeamId)
+                .setParameter("age", age)
+                .getSingleResult());
+    }
+}
@@ -3,6 +3,7 @@ package study.querydsl.repository;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -11,12 +12,16 @@ import study.querydsl.Entity.Member;
 import study.querydsl.Entity.Team;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.monitor.StatementStatistics;
 
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,6 +32,9 @@ class MemberJpaRepositoryTest {
     @Autowired
     EntityManager em;
 
+    @Autowired
+    EntityManagerFactory emf;
+
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
@@ -73,5 +81,115 @@ class MemberJpaRepositoryTest {
         Assertions.assertThat(result).extracting("username").containsExactly("member4");
     }
 
+    @Test
+    public void streamSearchTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1" , 10 , teamA));
+        em.persist(new Member("member2" , 20 , teamA));
+        em.persist(new Member("member3" , 30 , teamB));
+        em.persist(new Member("member4" , 40 , teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        List<String> usernames;
+        try (Stream<MemberTeamDto> stream = memberJpaRepository.streamSearch(condition)) {
+            usernames = stream.map(MemberTeamDto::getUsername).collect(Collectors.toList());
+        }
+        Assertions.assertThat(usernames).containsExactlyInAnyOrder("member3" , "member4");
+
+        long count = memberJpaRepository.forEachSearch(new MemberSearchCondition(), dto -> {});
+        Assertions.assertThat(count).isEqualTo(4);
+    }
+
+    @Test
+    public void searchMemberTeamLoading(){
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i , 10 , team));
+            em.persist(new Member("member" + (i + 5) , 20 , team));
+        }
+        em.flush();
+        em.clear();
+        emf.getCache().evictAll();
+
+        //팀 프록시는 default_batch_fetch_size 로 한번에 초기화 -> 회원 조회 1번 + 팀 조회 1번
+        StatementStatistics.start();
+        List<Member> members;
+        try {
+            members = memberJpaRepository.searchMember(new MemberSearchCondition());
+            members.forEach(m -> m.getTeam().getName());
+        } finally {
+            StatementStatistics statistics = StatementStatistics.stop();
+            Assertions.assertThat(statistics.getTotal()).isLessThanOrEqualTo(2);
+            Assertions.assertThat(statistics.repeatedSelects(2)).isEmpty();
+        }
+        Assertions.assertThat(members).hasSize(10);
+
+        em.clear();
+        List<Member> fetched = memberJpaRepository.searchMember(new MemberSearchCondition() , true);
+        Assertions.assertThat(fetched)
+                .allMatch(m -> emf.getPersistenceUnitUtil().isLoaded(m.getTeam()));
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void searchByBuilderNormalized(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1" , 10 , teamA));
+        em.persist(new Member("member2" , 20 , teamA));
+        em.persist(new Member("member3" , 30 , teamB));
+        em.persist(new Member("member4" , 40 , teamB));
+
+        //username 없이 팀 조건만 , ageLoe 는 이하 조건
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeLoe(35);
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(condition))
+                .extracting("username").containsExactly("member3");
+
+        //만족할 수 없는 범위는 DB 조회 없이 빈 결과
+        MemberSearchCondition impossible = new MemberSearchCondition();
+        impossible.setAgeGoe(40);
+        impossible.setAgeLoe(10);
+        StatementStatistics.start();
+        try {
+            Assertions.assertThat(memberJpaRepository.searchByBuilder(impossible)).isEmpty();
+            Assertions.assertThat(memberJpaRepository.search(impossible)).isEmpty();
+            Assertions.assertThat(memberJpaRepository.searchMember(impossible)).isEmpty();
+        } finally {
+            Assertions.assertThat(StatementStatistics.stop().getTotal()).isZero();
+        }
+    }
+
+    @Test
+    public void searchMemberReadOnlyAndDto(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1" , 10 , teamA));
+        em.persist(new Member("member2" , 20 , teamA));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        List<Member> members = memberJpaRepository.searchMemberReadOnly(condition);
+        Assertions.assertThat(members).hasSize(2);
+        Assertions.assertThat(members).allMatch(m -> em.unwrap(Session.class).isReadOnly(m));
+
+        //읽기 전용 엔티티는 변경 감지 대상이 아니다
+        members.forEach(m -> m.setAge(99));
+        em.flush();
+        em.clear();
+        Assertions.assertThat(memberJpaRepository.searchMemberDto(condition))
+                .extracting("age").containsExactlyInAnyOrder(10 , 20);
+    }
+}
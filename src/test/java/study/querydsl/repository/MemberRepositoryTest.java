@@ -6,15 +6,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.Entity.Member;
 import study.querydsl.Entity.QMember;
 import study.querydsl.Entity.Team;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.monitor.StatementStatistics;
 
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @SpringBootTest
 @Transactional
@@ -96,6 +102,82 @@ class MemberRepositoryTest {
         Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member1" , "member2" , "member3");
     }
 
+    @Test
+    public void searchPageSimpleSkipsCount(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 7; i++) {
+            em.persist(new Member("member" + i , 10 + i , teamA));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //마지막 페이지는 첫 페이지가 아니어도 count 쿼리 없이 전체 건수를 구한다
+        StatementStatistics.start();
+        Page<MemberTeamDto> last;
+        try {
+            last = memberRepository.searchPageSimple(condition, PageRequest.of(2, 3));
+        } finally {
+            Assertions.assertThat(StatementStatistics.stop().getTotal()).isEqualTo(1);
+        }
+        Assertions.assertThat(last.getContent()).extracting("username").containsExactly("member6");
+        Assertions.assertThat(last.getTotalElements()).isEqualTo(7);
+
+        //다음 페이지가 있으면 count 는 한번만 실행하고 캐시된 값을 재사용
+        StatementStatistics.start();
+        try {
+            Assertions.assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(0, 3)).getTotalElements()).isEqualTo(7);
+            Assertions.assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(1, 3)).getTotalElements()).isEqualTo(7);
+        } finally {
+            Assertions.assertThat(StatementStatistics.stop().getTotal()).isEqualTo(3);
+        }
+
+        //전체 건수가 필요 없으면 count 쿼리 없이 Slice
+        StatementStatistics.start();
+        Slice<MemberTeamDto> slice;
+        try {
+            slice = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+        } finally {
+            Assertions.assertThat(StatementStatistics.stop().getTotal()).isEqualTo(1);
+        }
+        Assertions.assertThat(slice.getContent()).extracting("username").containsExactly("member3" , "member4" , "member5");
+        Assertions.assertThat(slice.hasNext()).isTrue();
+    }
+
+    @Test
+    public void searchSlice(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1" , 10 , teamA);
+        Member member2 = new Member("member2" , 20 , teamA);
+
+        Member member3 = new Member("member3" , 30 , teamB);
+        Member member4 = new Member("member4" , 40 , teamB);
+
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, MemberCursor.first(3));
+        Assertions.assertThat(first.getContent()).extracting("username").containsExactly("member1" , "member2" , "member3");
+        Assertions.assertThat(first.hasNext()).isTrue();
+
+        //응답의 nextCursor 로 다음 페이지 조회
+        String nextCursor = new MemberCursorResult(first).getNextCursor();
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, MemberCursor.of(nextCursor, 3));
+        Assertions.assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        Assertions.assertThat(second.hasNext()).isFalse();
+        Assertions.assertThat(new MemberCursorResult(second).getNextCursor()).isNull();
+    }
+
     @Test
     public void querydslPredicateExecytorTest(){
 
@@ -121,4 +203,66 @@ class MemberRepositoryTest {
             System.out.println("member1" + member);
         }
     }
-}
\ No newline at end of file
+
+    //팀 조건이 없으면 count 쿼리에서 team 조인이 빠지고 member_id 를 센다
+    @Test
+    public void searchComplexCountWithoutJoin(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i , 10 + i , teamA));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        StatementStatistics.start();
+        Page<MemberTeamDto> result;
+        Map<String, Integer> statements;
+        try {
+            result = memberRepository.searchComplex(condition , PageRequest.of(0 , 2));
+        } finally {
+            statements = StatementStatistics.stop().getCounts();
+        }
+
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(4);
+        List<String> countSql = statements.keySet().stream()
+                .filter(sql -> sql.contains("count("))
+                .collect(Collectors.toList());
+        Assertions.assertThat(countSql).hasSize(1);
+        Assertions.assertThat(countSql.get(0))
+                .contains("count(member0_.member_id)")
+                .doesNotContain("join")
+                .doesNotContain("team");
+    }
+
+    @Test
+    public void searchUsernameContainsAndStartsWith(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1" , 10 , teamA));
+        em.persist(new Member("member12" , 20 , teamA));
+        em.persist(new Member("xmember2" , 30 , teamA));
+        em.persist(new Member("100%member" , 40 , teamA));
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("ber1");
+        Assertions.assertThat(memberRepository.search(contains))
+                .extracting("username").containsExactlyInAnyOrder("member1" , "member12");
+
+        MemberSearchCondition startsWith = new MemberSearchCondition();
+        startsWith.setUsernameStartsWith("member");
+        startsWith.setAgeGoe(15);
+        Assertions.assertThat(memberRepository.search(startsWith))
+                .extracting("username").containsExactly("member12");
+
+        //like 와일드카드 문자는 그대로 비교
+        MemberSearchCondition wildcard = new MemberSearchCondition();
+        wildcard.setUsernameContains("0%m");
+        Assertions.assertThat(memberRepository.search(wildcard))
+                .extracting("username").containsExactly("100%member");
+        Assertions.assertThat(memberRepository.searchComplex(contains , PageRequest.of(0 , 1)).getTotalElements())
+                .isEqualTo(2);
+    }
+}
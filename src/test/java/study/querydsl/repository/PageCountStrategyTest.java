@@ -0,0 +1,59 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.PageCountStrategy;
+
+import javax.persistence.EntityManager;
+
+@SpringBootTest
+@Transactional
+class PageCountStrategyTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        for (int i = 0; i < 1000; i++) {
+            em.persist(new Member("member" + i , i % 100 , i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void sameTotalForEveryStrategy(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(10);
+
+        for (PageCountStrategy strategy : PageCountStrategy.values()) {
+            Page<MemberTeamDto> page = memberRepository.searchPage(condition, PageRequest.of(2, 20), strategy);
+            Assertions.assertThat(page.getTotalElements()).as(strategy.name()).isEqualTo(450);
+            Assertions.assertThat(page.getContent()).as(strategy.name()).hasSize(20);
+
+            //마지막 페이지 다음(빈 페이지)도 전체 건수는 같아야 한다
+            Page<MemberTeamDto> empty = memberRepository.searchPage(condition, PageRequest.of(100, 20), strategy);
+            Assertions.assertThat(empty.getTotalElements()).as(strategy.name()).isEqualTo(450);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.mockito.Mockito.mock;
+
+class AsyncQueryRunnerTest {
+
+    @Test
+    public void rejectWhenPoolIsFull() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        AsyncQueryRunner runner = new AsyncQueryRunner(executor, mock(PlatformTransactionManager.class), 3);
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = runner.submit(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "done";
+            });
+
+            //풀(1)과 큐(0)가 모두 차 있으므로 바로 실패
+            CompletableFuture<String> rejected = runner.submit(() -> "rejected");
+            Assertions.assertThat(rejected).isCompletedExceptionally();
+            Assertions.assertThatThrownBy(rejected::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(RejectedExecutionException.class);
+
+            release.countDown();
+            Assertions.assertThat(running.get()).isEqualTo("done");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.QTeam;
+
+import static study.querydsl.Entity.QMember.member;
+import static study.querydsl.Entity.QTeam.team;
+
+class CountQueriesTest {
+
+    @Test
+    public void dropUnusedToOneJoin(){
+        JPAQuery<Member> content = new JPAQuery<Void>()
+                .select(member)
+                .from(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(member.age.goe(10))
+                .orderBy(member.username.asc())
+                .offset(10)
+                .limit(10);
+
+        String jpql = countJpql(content.getMetadata(), member.id);
+
+        Assertions.assertThat(jpql)
+                .contains("select count(member1.id)")
+                .doesNotContain("team")
+                .doesNotContain("fetch")
+                .doesNotContain("order by");
+    }
+
+    @Test
+    public void keepJoinUsedByWhere(){
+        JPAQuery<Member> content = new JPAQuery<Void>()
+                .select(member)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("teamA"));
+
+        Assertions.assertThat(countJpql(content.getMetadata(), member.id))
+                .contains("left join member1.team as team")
+                .contains("where team.name = ?1");
+    }
+
+    @Test
+    public void keepCollectionJoinAndDistinct(){
+        QMember teamMember = new QMember("teamMember");
+        JPAQuery<?> content = new JPAQuery<Void>()
+                .select(QTeam.team)
+                .distinct()
+                .from(QTeam.team)
+                .leftJoin(QTeam.team.members, teamMember);
+
+        Assertions.assertThat(countJpql(content.getMetadata(), QTeam.team.id))
+                .contains("count(distinct team.id)")
+                .contains("left join team.members as teamMember");
+    }
+
+    private static String countJpql(QueryMetadata content, Expression<?> id){
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serialize(CountQueries.countMetadata(content, id), false, null);
+        return serializer.toString();
+    }
+}
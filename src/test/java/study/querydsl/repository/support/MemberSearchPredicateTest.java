@@ -0,0 +1,54 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+class MemberSearchPredicateTest {
+
+    @Test
+    public void normalize(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("");
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(20);
+
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+
+        Assertions.assertThat(predicate.getUsername()).isNull();
+        Assertions.assertThat(predicate.usernameEq()).isNull();
+        Assertions.assertThat(predicate.needsTeamJoin()).isFalse();
+        Assertions.assertThat(predicate.isEmpty()).isFalse();
+        Assertions.assertThat(predicate.toPredicate().toString()).isEqualTo("member1.age between 10 and 20");
+    }
+
+    @Test
+    public void sameAgeIsEq(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(20);
+
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(condition);
+
+        Assertions.assertThat(predicate.needsTeamJoin()).isTrue();
+        Assertions.assertThat(predicate.age().toString()).isEqualTo("member1.age = 20");
+    }
+
+    @Test
+    public void impossibleRange(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(20);
+
+        Assertions.assertThat(MemberSearchPredicate.of(condition).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void noCondition(){
+        MemberSearchPredicate predicate = MemberSearchPredicate.of(new MemberSearchCondition());
+
+        Assertions.assertThat(predicate.toPredicate()).isNull();
+        Assertions.assertThat(predicate.where()).containsOnlyNulls();
+    }
+}
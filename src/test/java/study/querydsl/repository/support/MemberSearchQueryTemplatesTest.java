@@ -0,0 +1,63 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.monitor.QueryMetrics;
+
+class MemberSearchQueryTemplatesTest {
+
+    //JPQL 렌더링만 확인하므로 EntityManager , 회원명 인덱스 없이 만든다
+    private static MemberSearchQueryTemplates templates(){
+        return new MemberSearchQueryTemplates(null, false, new QueryMetrics(new SimpleMeterRegistry()), null);
+    }
+
+    @Test
+    public void sameJpqlForSameShape(){
+        MemberSearchQueryTemplates templates = templates();
+
+        MemberSearchCondition condition1 = new MemberSearchCondition();
+        condition1.setTeamName("teamA");
+        condition1.setAgeGoe(10);
+        MemberSearchCondition condition2 = new MemberSearchCondition();
+        condition2.setTeamName("teamB");
+        condition2.setAgeGoe(30);
+
+        //값이 달라도 조합이 같으면 같은 JPQL
+        Assertions.assertThat(templates.jpql(condition1)).isSameAs(templates.jpql(condition2));
+        Assertions.assertThat(templates.jpql(condition1)).contains("team.name = ?").doesNotContain("member.username");
+        Assertions.assertThat(templates.jpql(new MemberSearchCondition())).doesNotContain("where");
+        Assertions.assertThat(templates.templateCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void sameAgeIsEq(){
+        MemberSearchQueryTemplates templates = templates();
+
+        MemberSearchCondition range = new MemberSearchCondition();
+        range.setAgeGoe(10);
+        range.setAgeLoe(20);
+        MemberSearchCondition same = new MemberSearchCondition();
+        same.setAgeGoe(20);
+        same.setAgeLoe(20);
+
+        //MemberSearchPredicate 와 같이 범위가 같으면 eq
+        Assertions.assertThat(templates.jpql(range)).contains("member1.age between ?");
+        Assertions.assertThat(templates.jpql(same)).contains("member1.age = ?").doesNotContain("between");
+        Assertions.assertThat(templates.templateCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void countJpqlJoinsTeamOnlyWhenFiltered(){
+        MemberSearchQueryTemplates templates = templates();
+
+        MemberSearchCondition ageOnly = new MemberSearchCondition();
+        ageOnly.setAgeGoe(10);
+        MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setTeamName("teamA");
+
+        Assertions.assertThat(templates.countJpql(ageOnly)).contains("count(member1.id)").doesNotContain("team");
+        Assertions.assertThat(templates.countJpql(byTeam)).contains("left join member1.team as team");
+    }
+}
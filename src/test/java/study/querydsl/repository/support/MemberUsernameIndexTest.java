@@ -0,0 +1,124 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//인덱스는 커밋된 변경만 반영하므로 @Transactional 없이 트랜잭션마다 커밋한다
+//변경 후 다시 적재는 테스트에서 직접 호출한다 (자동 적재는 한 시간 뒤)
+@SpringBootTest(properties = {
+        "app.username-index.enabled=true",
+        "app.username-index.max-ids=2",
+        "app.username-index.refresh-delay-millis=3600000"})
+class MemberUsernameIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberUsernameIndex usernameIndex;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate tx;
+    Long teamId;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team team = new Team("ngramTeam");
+            em.persist(team);
+            em.persist(new Member("ngramAlpha1" , 10 , team));
+            em.persist(new Member("ngramAlpha2" , 20 , team));
+            em.persist(new Member("ngramAlpha3" , 30 , team));
+            em.persist(new Member("ngramBeta1" , 40 , team));
+            teamId = team.getId();
+            return null;
+        });
+        usernameIndex.reload();
+    }
+
+    @AfterEach
+    public void after(){
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.team.id = :id").setParameter("id", teamId).executeUpdate();
+            em.createQuery("delete from Team t where t.id = :id").setParameter("id", teamId).executeUpdate();
+            return null;
+        });
+        usernameIndex.reload();
+    }
+
+    @Test
+    public void resolvedToMemberIds(){
+        MemberSearchCondition condition = contains("gramBeta");
+
+        //회원명 조건이 member.id in (...) 으로 바뀐다
+        MemberSearchPredicate resolved = usernameIndex.resolve(MemberSearchPredicate.of(condition));
+        Assertions.assertThat(resolved.getMemberIds()).hasSize(1);
+        Assertions.assertThat(resolved.hasUsernameMatch()).isFalse();
+
+        Assertions.assertThat(usernames(memberJpaRepository.search(condition))).containsExactly("ngramBeta1");
+
+        //일치하는 회원이 없으면 빈 결과
+        Assertions.assertThat(memberJpaRepository.search(contains("gramGamma"))).isEmpty();
+    }
+
+    @Test
+    public void tooManyIdsFallsBackToLike(){
+        MemberSearchCondition condition = contains("gramAlpha");
+
+        //max-ids(2) 보다 많으면 like 로 조회
+        MemberSearchPredicate resolved = usernameIndex.resolve(MemberSearchPredicate.of(condition));
+        Assertions.assertThat(resolved.getMemberIds()).isNull();
+        Assertions.assertThat(resolved.hasUsernameMatch()).isTrue();
+
+        Assertions.assertThat(usernames(memberJpaRepository.search(condition)))
+                .containsExactlyInAnyOrder("ngramAlpha1", "ngramAlpha2", "ngramAlpha3");
+    }
+
+    @Test
+    public void staleIndexFallsBackToLike(){
+        tx.execute(status -> {
+            em.persist(new Member("ngramBeta2" , 50 , em.find(Team.class, teamId)));
+            return null;
+        });
+
+        //다시 적재하기 전에는 like 로 조회해서 방금 추가된 회원도 찾는다
+        MemberSearchCondition condition = contains("gramBeta");
+        Assertions.assertThat(usernameIndex.resolve(MemberSearchPredicate.of(condition)).getMemberIds()).isNull();
+        Assertions.assertThat(usernames(memberJpaRepository.search(condition)))
+                .containsExactlyInAnyOrder("ngramBeta1", "ngramBeta2");
+
+        usernameIndex.reload();
+        Assertions.assertThat(usernameIndex.resolve(MemberSearchPredicate.of(condition)).getMemberIds()).hasSize(2);
+    }
+
+    private static MemberSearchCondition contains(String usernameContains) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains(usernameContains);
+        return condition;
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> result) {
+        return result.stream().map(MemberTeamDto::getUsername).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,60 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.event.TableModifiedEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class QueryCountCacheTest {
+
+    @Test
+    public void cacheHit(){
+        QueryCountCache cache = new QueryCountCache(60, 10);
+        AtomicInteger executed = new AtomicInteger();
+
+        long first = cache.get(QueryCountCache.key("member", "member1", null), () -> { executed.incrementAndGet(); return 4; });
+        //빈 문자열은 조건이 없는것과 같은 키
+        long second = cache.get(QueryCountCache.key("member", "member1", " "), () -> { executed.incrementAndGet(); return 5; });
+
+        Assertions.assertThat(first).isEqualTo(4);
+        Assertions.assertThat(second).isEqualTo(4);
+        Assertions.assertThat(executed.get()).isEqualTo(1);
+        Assertions.assertThat(cache.stats().get("hits")).isEqualTo(1);
+        Assertions.assertThat(cache.stats().get("misses")).isEqualTo(1);
+    }
+
+    @Test
+    public void expireByTtl(){
+        QueryCountCache cache = new QueryCountCache(0, 10);
+
+        cache.get("key", () -> 1);
+        long count = cache.get("key", () -> 2);
+
+        Assertions.assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed(){
+        QueryCountCache cache = new QueryCountCache(60, 2);
+
+        cache.get("a", () -> 1);
+        cache.get("b", () -> 2);
+        cache.get("a", () -> 1);
+        cache.get("c", () -> 3);//b 제거
+
+        Assertions.assertThat(cache.get("a", () -> 10)).isEqualTo(1);
+        Assertions.assertThat(cache.get("b", () -> 20)).isEqualTo(20);
+        Assertions.assertThat(cache.stats().get("evictions")).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void invalidateOnTableModified(){
+        QueryCountCache cache = new QueryCountCache(60, 10);
+        cache.get("key", () -> 1);
+
+        cache.onTableModified(new TableModifiedEvent("member"));
+
+        Assertions.assertThat(cache.get("key", () -> 2)).isEqualTo(2);
+    }
+}
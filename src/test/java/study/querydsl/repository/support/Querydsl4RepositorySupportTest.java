@@ -0,0 +1,186 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.Team;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberTestRepository;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static study.querydsl.Entity.QMember.member;
+import static study.querydsl.Entity.QTeam.team;
+
+//병렬 count 는 별도 트랜잭션에서 커밋된 데이터만 보므로 @Transactional 없이 데이터를 커밋한다
+//(쓰기 트랜잭션 안에서 호출하는 경우만 @Transactional 로 확인)
+@SpringBootTest
+class Querydsl4RepositorySupportTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("countQueryExecutor")
+    Executor countQueryExecutor;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    TransactionTemplate tx;
+    TestSupport support;
+    Long teamId;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        support = new TestSupport();
+        support.setEntityManager(em);
+        support.setTransactionManager(transactionManager);
+        support.setCountQueryExecutor(countQueryExecutor);
+        tx.execute(status -> {
+            Team supportTeam = new Team("supportTeam");
+            em.persist(supportTeam);
+            //나이 10 , 20 , 30 이 각각 2명
+            for (int i = 0; i < 6; i++) {
+                em.persist(new Member("support" + i , 10 + (i % 3) * 10 , supportTeam));
+            }
+            teamId = supportTeam.getId();
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.team.id = :id").setParameter("id", teamId).executeUpdate();
+            em.createQuery("delete from Team t where t.id = :id").setParameter("id", teamId).executeUpdate();
+            return null;
+        });
+    }
+
+    //group by 쿼리의 전체 건수는 그룹 수
+    @Test
+    public void groupByPaging(){
+        Page<Tuple> page = tx.execute(status -> support.pageAgeGroups(PageRequest.of(0, 2)));
+
+        Assertions.assertThat(page.getContent()).hasSize(2);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(page.getContent().get(0).get(member.count())).isEqualTo(2L);
+    }
+
+    @Test
+    public void parallelCount(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("supportTeam");
+
+        Page<Member> page = memberTestRepository.applyPaginationParallelCount(condition, PageRequest.of(0, 4));
+        Assertions.assertThat(page.getContent()).hasSize(4);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(6);
+
+        //마지막 페이지는 count 없이 offset + 컨텐츠 사이즈
+        Page<Member> last = memberTestRepository.applyPaginationParallelCount(condition, PageRequest.of(1, 4));
+        Assertions.assertThat(last.getContent()).hasSize(2);
+        Assertions.assertThat(last.getTotalElements()).isEqualTo(6);
+    }
+
+    @Test
+    public void parallelCountRunsOnExecutor(){
+        AtomicReference<Thread> countThread = new AtomicReference<>();
+        Page<Member> page = support.pageWithParallelCount(PageRequest.of(0, 2), countThread);
+
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(6);
+        Assertions.assertThat(countThread.get().getName()).startsWith("count-query-");
+
+        //기다리는 호출 수 한도를 넘으면 같은 스레드에서 순차 실행
+        support.setParallelCountMaxWaiting(0);
+        page = support.pageWithParallelCount(PageRequest.of(0, 2), countThread);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(6);
+        Assertions.assertThat(countThread.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    @Transactional
+    public void parallelCountInWriteTransaction(){
+        em.persist(new Member("support6" , 40 , em.find(Team.class, teamId)));
+
+        //쓰기 트랜잭션 안에서는 방금 저장한 회원도 세도록 같은 스레드에서 순차 실행
+        AtomicReference<Thread> countThread = new AtomicReference<>();
+        Page<Member> page = support.pageWithParallelCount(PageRequest.of(0, 2), countThread);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(7);
+        Assertions.assertThat(countThread.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void parallelCountFailure(){
+        //count 예외는 원래 예외 그대로 호출한 쪽에 전달
+        Assertions.assertThatThrownBy(() -> support.pageWithFailingCount(PageRequest.of(0, 2)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("count failed");
+
+        //컨텐츠 조회 예외는 count 를 취소하고 전달
+        Assertions.assertThatThrownBy(() -> support.pageWithFailingContent(PageRequest.of(0, 2)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("content failed");
+    }
+
+    static class TestSupport extends Querydsl4RepositorySupport {
+
+        TestSupport() {
+            super(Member.class);
+        }
+
+        Page<Tuple> pageAgeGroups(PageRequest pageable) {
+            return applyPagination(pageable, query -> query
+                    .select(member.age, member.count())
+                    .from(member)
+                    .join(member.team, team)
+                    .where(team.name.eq("supportTeam"))
+                    .groupBy(member.age)
+                    .orderBy(member.age.asc()));
+        }
+
+        Page<Member> pageWithParallelCount(PageRequest pageable, AtomicReference<Thread> countThread) {
+            return applyPaginationWithParallelCount(pageable, this::supportMembers, query -> {
+                countThread.set(Thread.currentThread());
+                return supportMembers(query);
+            });
+        }
+
+        Page<Member> pageWithFailingCount(PageRequest pageable) {
+            return applyPaginationWithParallelCount(pageable, this::supportMembers, query -> {
+                throw new IllegalStateException("count failed");
+            });
+        }
+
+        Page<Member> pageWithFailingContent(PageRequest pageable) {
+            return applyPaginationWithParallelCount(pageable, query -> {
+                throw new IllegalStateException("content failed");
+            }, this::supportMembers);
+        }
+
+        private JPAQuery<Member> supportMembers(JPAQueryFactory query) {
+            return query.selectFrom(member)
+                    .join(member.team, team)
+                    .where(team.name.eq("supportTeam"));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+class SearchCoalescerTest {
+
+    @Test
+    public void concurrentSameKeyExecutesOnce() throws Exception {
+        SearchCoalescer coalescer = coalescer(0);
+        AtomicInteger executed = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<String>> query = () -> {
+            executed.incrementAndGet();
+            await(release);
+            return Arrays.asList("member1", "member2");
+        };
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> coalescer.search("member.search", "teamA", query, UnaryOperator.identity())));
+            }
+            //먼저 온 요청이 조회하는 동안 나머지가 모두 합쳐질 때까지 기다린다
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalesced(coalescer) < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<List<String>> result : results) {
+                Assertions.assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly("member1", "member2");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(executed.get()).isEqualTo(1);
+        Assertions.assertThat(coalescer.stats().get("member.search"))
+                .containsEntry("executed", 1L)
+                .containsEntry("coalesced", (long) callers - 1);
+    }
+
+    @Test
+    public void cachedUntilInvalidated(){
+        SearchCoalescer coalescer = coalescer(60_000);
+        AtomicInteger executed = new AtomicInteger();
+        Supplier<List<String>> query = () -> {
+            executed.incrementAndGet();
+            return new ArrayList<>(Arrays.asList("member1"));
+        };
+
+        List<String> first = coalescer.search("member.search", "teamA", query, UnaryOperator.identity());
+        first.add("changed");//호출마다 복사본
+        Assertions.assertThat(coalescer.search("member.search", "teamA", query, UnaryOperator.identity())).containsExactly("member1");
+        Assertions.assertThat(executed.get()).isEqualTo(1);
+
+        coalescer.search("member.search", "teamB", query, UnaryOperator.identity());
+        Assertions.assertThat(executed.get()).isEqualTo(2);
+
+        coalescer.invalidateAll();
+        coalescer.search("member.search", "teamA", query, UnaryOperator.identity());
+        Assertions.assertThat(executed.get()).isEqualTo(3);
+        Assertions.assertThat(coalescer.stats().get("member.search")).containsEntry("cached", 1L);
+    }
+
+    @Test
+    public void rowsAreCopiedForEachCaller(){
+        SearchCoalescer coalescer = coalescer(60_000);
+        Supplier<List<AtomicInteger>> query = () -> Arrays.asList(new AtomicInteger(1));
+
+        List<AtomicInteger> first = coalescer.search("member.search", "teamA", query, row -> new AtomicInteger(row.get()));
+        first.get(0).set(99);//한 호출이 DTO 를 바꿔도
+
+        //저장된 결과와 다른 호출은 영향을 받지 않는다
+        List<AtomicInteger> second = coalescer.search("member.search", "teamA", query, row -> new AtomicInteger(row.get()));
+        Assertions.assertThat(second.get(0).get()).isEqualTo(1);
+        Assertions.assertThat(second.get(0)).isNotSameAs(first.get(0));
+    }
+
+    @Test
+    public void failureIsNotCached(){
+        SearchCoalescer coalescer = coalescer(60_000);
+        AtomicInteger executed = new AtomicInteger();
+
+        Assertions.assertThatThrownBy(() -> coalescer.search("member.search", "teamA", () -> {
+            executed.incrementAndGet();
+            throw new IllegalStateException("db down");
+        }, UnaryOperator.identity())).isInstanceOf(IllegalStateException.class);
+
+        Assertions.assertThat(coalescer.search("member.search", "teamA", () -> {
+            executed.incrementAndGet();
+            return Arrays.asList("member1");
+        }, UnaryOperator.identity())).containsExactly("member1");
+        Assertions.assertThat(executed.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void boundedByRows(){
+        SearchCoalescer coalescer = coalescer(60_000, 3);
+
+        coalescer.search("member.search", "teamA", () -> Arrays.asList("member1", "member2"), UnaryOperator.identity());
+        coalescer.search("member.search", "teamB", () -> Arrays.asList("member3", "member4"), UnaryOperator.identity());
+        //row 수 제한을 넘으면 오래된 결과부터 버린다
+        Assertions.assertThat(coalescer.cachedResults()).isEqualTo(1);
+        Assertions.assertThat(coalescer.cachedRows()).isEqualTo(2);
+
+        //제한보다 큰 결과는 저장하지 않는다
+        coalescer.search("member.search", "all", () -> Arrays.asList("member1", "member2", "member3", "member4"), UnaryOperator.identity());
+        Assertions.assertThat(coalescer.cachedResults()).isEqualTo(1);
+        Assertions.assertThat(coalescer.cachedRows()).isEqualTo(2);
+    }
+
+    @Test
+    public void expiredResultsArePurged() throws InterruptedException {
+        SearchCoalescer coalescer = coalescer(1, 100);
+
+        coalescer.search("member.search", "teamA", () -> Arrays.asList("member1"), UnaryOperator.identity());
+        coalescer.search("member.search", "teamB", () -> Arrays.asList("member2"), UnaryOperator.identity());
+        Thread.sleep(10);
+
+        //다시 조회되지 않는 키도 다음 저장 때 정리된다
+        coalescer.search("member.search", "teamC", () -> Arrays.asList("member3"), UnaryOperator.identity());
+        Assertions.assertThat(coalescer.cachedResults()).isEqualTo(1);
+        Assertions.assertThat(coalescer.cachedRows()).isEqualTo(1);
+    }
+
+    private static SearchCoalescer coalescer(long ttlMillis) {
+        return coalescer(ttlMillis, 100);
+    }
+
+    private static SearchCoalescer coalescer(long ttlMillis, long maxRows) {
+        return new SearchCoalescer(true, ttlMillis, maxRows, new SimpleMeterRegistry(), TransactionOperations.withoutTransaction());
+    }
+
+    private static long coalesced(SearchCoalescer coalescer) {
+        return coalescer.stats().getOrDefault("member.search", Collections.emptyMap()).getOrDefault("coalesced", 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+@SpringBootTest
+class SecondLevelCacheEvictorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    SecondLevelCacheEvictor secondLevelCacheEvictor;
+
+    @Test
+    public void evictTeamRegion(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Cache cache = emf.unwrap(SessionFactory.class).getCache();
+
+        Long teamId = tx.execute(status -> {
+            Team team = new Team("cachedTeam");
+            em.persist(team);
+            return team.getId();
+        });
+        try {
+            //커밋 후 조회하면 2차 캐시에 저장된다
+            tx.execute(status -> em.find(Team.class, teamId));
+            Assertions.assertThat(cache.containsEntity(Team.class, teamId)).isTrue();
+
+            secondLevelCacheEvictor.evict("team");
+
+            Assertions.assertThat(cache.containsEntity(Team.class, teamId)).isFalse();
+        } finally {
+            tx.execute(status -> em.createQuery("delete from Team t where t.id = :id")
+                    .setParameter("id", teamId)
+                    .executeUpdate());
+        }
+    }
+}
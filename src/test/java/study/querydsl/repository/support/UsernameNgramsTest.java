@@ -0,0 +1,65 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+class UsernameNgramsTest {
+
+    @Test
+    public void sameAsScan(){
+        Random random = new Random(7);
+        List<String> usernames = new ArrayList<>();
+        List<Long> memberIds = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            usernames.add(id % 50 == 0 ? null : randomName(random));
+            memberIds.add(id);
+        }
+        UsernameNgrams ngrams = UsernameNgrams.build(usernames, memberIds);
+
+        String[] texts = {null, "a", "ab", "abc", "bca", "aaaa", "cab", "x"};
+        for (String startsWith : texts) {
+            for (String contains : texts) {
+                long[] expected = scan(usernames, memberIds, startsWith, contains);
+                long[] found = ngrams.find(startsWith, contains, 1000);
+                Arrays.sort(found);
+                Assertions.assertThat(found).as("startsWith=%s contains=%s", startsWith, contains).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void overLimit(){
+        UsernameNgrams ngrams = UsernameNgrams.build(
+                Arrays.asList("member1", "member2", "member3"), Arrays.asList(1L, 2L, 3L));
+
+        Assertions.assertThat(ngrams.find("member", null, 2)).isNull();
+        Assertions.assertThat(ngrams.find("member", null, 3)).containsExactlyInAnyOrder(1L, 2L, 3L);
+        Assertions.assertThat(ngrams.find(null, "ber2", 2)).containsExactly(2L);
+        Assertions.assertThat(ngrams.find(null, "nobody", 2)).isEmpty();
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[1 + random.nextInt(6)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(name);
+    }
+
+    private static long[] scan(List<String> usernames, List<Long> memberIds, String startsWith, String contains) {
+        List<Long> result = new ArrayList<>();
+        for (int i = 0; i < usernames.size(); i++) {
+            String name = usernames.get(i);
+            if (name == null) continue;
+            if (startsWith != null && !name.startsWith(startsWith)) continue;
+            if (contains != null && !name.contains(contains)) continue;
+            result.add(memberIds.get(i));
+        }
+        return result.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,179 @@
+package study.querydsl.stats;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Entity.Member;
+import study.querydsl.Entity.QMember;
+import study.querydsl.Entity.Team;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.monitor.StatementStatistics;
+import study.querydsl.repository.MemberBulkRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+//변경분은 커밋된 다음에 반영되므로 @Transactional 없이 트랜잭션마다 커밋한다
+@SpringBootTest(properties = "app.team-stats.refresh-millis=3600000")
+class TeamStatsServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TeamStatsService teamStatsService;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    TransactionTemplate tx;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        teamStatsService.reconcile();
+        tx.execute(status -> {
+            Team teamA = new Team("statsTeamA");
+            Team teamB = new Team("statsTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("stats1" , 10 , teamA));
+            em.persist(new Member("stats2" , 20 , teamA));
+            em.persist(new Member("stats3" , 30 , teamB));
+            em.persist(new Member("stats4" , 40 , teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.team.id in (:ids)")
+                    .setParameter("ids", Arrays.asList(teamAId, teamBId)).executeUpdate();
+            em.createQuery("delete from Team t where t.id in (:ids)")
+                    .setParameter("ids", Arrays.asList(teamAId, teamBId)).executeUpdate();
+            return null;
+        });
+        teamStatsService.reconcile();
+    }
+
+    @Test
+    public void incrementalUpdates(){
+        assertStats("statsTeamA", 2, 30, 10, 20);
+        assertStats("statsTeamB", 2, 70, 30, 40);
+
+        //나이 변경 , 팀 변경 , 삭제
+        tx.execute(status -> {
+            Member stats1 = findMember("stats1");
+            stats1.setAge(5);
+            Member stats4 = findMember("stats4");
+            stats4.setTeam(em.find(Team.class, teamAId));
+            em.remove(findMember("stats3"));
+            return null;
+        });
+        assertStats("statsTeamA", 3, 65, 5, 40);
+        Assertions.assertThat(teamStatsService.findByTeamName("statsTeamB")).isEmpty();
+        Assertions.assertThat(teamStatsService.isDirty()).isFalse();
+
+        //롤백된 변경은 반영하지 않는다
+        tx.execute(status -> {
+            findMember("stats2").setAge(99);
+            status.setRollbackOnly();
+            return null;
+        });
+        assertStats("statsTeamA", 3, 65, 5, 40);
+
+        //조회는 DB 를 사용하지 않는다
+        StatementStatistics.start();
+        try {
+            teamStatsService.findAll();
+        } finally {
+            Assertions.assertThat(StatementStatistics.stop().getTotal()).isZero();
+        }
+    }
+
+    @Test
+    public void bulkUpdateMarksDirtyAndReconciles(){
+        memberBulkRepository.updateInChunks(QMember.member.team.id.eq(teamBId),
+                update -> update.set(QMember.member.age, QMember.member.age.add(1)), p -> {});
+
+        //벌크 연산은 엔티티 이벤트가 없으므로 다시 계산이 필요하다
+        Assertions.assertThat(teamStatsService.isDirty()).isTrue();
+        teamStatsService.reconcileIfNeeded();
+
+        Assertions.assertThat(teamStatsService.isDirty()).isFalse();
+        assertStats("statsTeamB", 2, 72, 31, 41);
+
+        //메모리 값과 실제 GROUP BY 결과가 같아야 한다
+        Double avg = tx.execute(status -> em.createQuery(
+                "select avg(m.age) from Member m join m.team t where t.name = 'statsTeamB'", Double.class)
+                .getSingleResult());
+        Assertions.assertThat(teamStatsService.findByTeamName("statsTeamB").get().getAgeAvg()).isEqualTo(avg);
+    }
+
+    @Test
+    public void bulkUpdateWithEntityChangeInSameTransaction(){
+        //같은 트랜잭션에서 엔티티 저장과 JPQL 벌크 수정을 함께 해도 벌크 연산으로 감지해야 한다
+        tx.execute(status -> {
+            em.persist(new Member("stats5", 50, em.find(Team.class, teamAId)));
+            em.createQuery("update Member m set m.age = m.age + 1 where m.team.id = :id")
+                    .setParameter("id", teamAId).executeUpdate();
+            return null;
+        });
+        Assertions.assertThat(teamStatsService.isDirty()).isTrue();
+
+        teamStatsService.reconcileIfNeeded();
+        assertStats("statsTeamA", 3, 83, 11, 51);
+    }
+
+    @Test
+    public void reconcileBetweenCommitAndApply(){
+        //커밋은 되었지만 변경분이 반영되기 전에 다시 계산하면 같은 변경이 두번 더해지면 안된다
+        tx.execute(status -> {
+            em.persist(new Member("stats5", 50, em.find(Team.class, teamAId)));
+            em.flush();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    CompletableFuture.runAsync(teamStatsService::reconcile).join();
+                }
+            });
+            return null;
+        });
+        assertStats("statsTeamA", 3, 80, 10, 50);
+
+        teamStatsService.reconcileIfNeeded();
+        assertStats("statsTeamA", 3, 80, 10, 50);
+        Assertions.assertThat(teamStatsService.isDirty()).isFalse();
+    }
+
+    private Member findMember(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+
+    private void assertStats(String teamName, long count, long sum, int min, int max) {
+        TeamStatsDto stats = teamStatsService.findByTeamName(teamName).get();
+        Assertions.assertThat(stats.getCount()).as(teamName).isEqualTo(count);
+        Assertions.assertThat(stats.getAgeSum()).as(teamName).isEqualTo(sum);
+        Assertions.assertThat(stats.getAgeMin()).as(teamName).isEqualTo(min);
+        Assertions.assertThat(stats.getAgeMax()).as(teamName).isEqualTo(max);
+        Assertions.assertThat(stats.getAgeAvg()).as(teamName).isEqualTo((double) sum / count);
+    }
+}